@@ -0,0 +1,11 @@
+
+package converters.gi_to_sat;
+
+/** Represents the ways of encoding an "at most one of these variables is true" constraint in cnf
+ *  (see AtMostOne)
+ *
+ * @author Frank Mugrauer
+ */
+public enum AMO_Encoding {
+    PAIRWISE,SEQUENTIAL,COMMANDER,PRODUCT;
+}
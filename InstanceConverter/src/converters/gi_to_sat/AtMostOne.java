@@ -0,0 +1,90 @@
+
+package converters.gi_to_sat;
+
+/** Encodes "at most one of the variables v_1..v_m is true" in cnf
+ *  - PAIRWISE: (~v_a OR ~v_b) for every pair a<b; m(m-1)/2 clauses, no auxiliary variables
+ *  - SEQUENTIAL: sequential counter (Sinz 2005); auxiliary s_a means "one of v_1..v_a is true",
+ *      3m-4 clauses, m-1 auxiliary variables
+ *  - COMMANDER: (Klieber, Kwon 2007) groups of three variables are encoded pairwise, each group gets a
+ *      commander variable that is implied by every variable of the group, and at most one commander may
+ *      be true (encoded recursively); about 3m clauses, m/2 auxiliary variables
+ *  - PRODUCT: 2-product encoding (Chen 2010); the variables are arranged in a p*q grid, every variable
+ *      implies its row variable u_r and column variable w_c, and at most one of the u and one of the w may
+ *      be true (encoded recursively); about 2m clauses, 2*sqrt(m) auxiliary variables
+ *  Small sets of variables are always encoded pairwise, since that needs the fewest clauses for them.
+ *
+ * @author Frank Mugrauer
+ */
+class AtMostOne {
+    private static final int PAIRWISE_LIMIT = 5;
+    private static final int GROUP_SIZE = 3;
+
+    /* adds clauses to <sink> ensuring that at most one of the first <length> variables in <vars> is true
+     */
+    static void encode(AMO_Encoding encoding, int[] vars, int length, ClauseSink sink) throws Exception{
+        if(length <= PAIRWISE_LIMIT || encoding == AMO_Encoding.PAIRWISE){
+            pairwise(vars, 0, length, sink);
+            return;
+        }
+        switch(encoding){
+            case SEQUENTIAL:
+                sequential(vars, length, sink);
+                break;
+            case COMMANDER:
+                commander(vars, length, sink);
+                break;
+            case PRODUCT:
+                product(vars, length, sink);
+                break;
+        }
+    }
+
+    private static void pairwise(int[] vars, int from, int to, ClauseSink sink) throws Exception{
+        for(int a=from; a<to; a++)
+            for(int b=from; b<a; b++)
+                sink.addNegatedBinary(vars[b], vars[a]);
+    }
+
+    private static void sequential(int[] vars, int length, ClauseSink sink) throws Exception{
+        int previous = sink.newVariable();  //s_1
+        sink.addImplication(vars[0], previous);
+        for(int a=1; a<length-1; a++){
+            int s = sink.newVariable();
+            sink.addImplication(vars[a], s);
+            sink.addImplication(previous, s);
+            sink.addNegatedBinary(vars[a], previous);
+            previous = s;
+        }
+        sink.addNegatedBinary(vars[length-1], previous);
+    }
+
+    private static void commander(int[] vars, int length, ClauseSink sink) throws Exception{
+        int[] commanders = new int[(length+GROUP_SIZE-1)/GROUP_SIZE];
+        for(int g=0; g<commanders.length; g++){
+            int from = g*GROUP_SIZE;
+            int to = Math.min(from+GROUP_SIZE, length);
+            pairwise(vars, from, to, sink);
+            commanders[g] = sink.newVariable();
+            for(int a=from; a<to; a++)
+                sink.addImplication(vars[a], commanders[g]);
+        }
+        encode(AMO_Encoding.COMMANDER, commanders, commanders.length, sink);
+    }
+
+    private static void product(int[] vars, int length, ClauseSink sink) throws Exception{
+        int p = (int)Math.ceil(Math.sqrt(length));
+        int q = (length+p-1)/p;
+        int[] rows = new int[p];
+        int[] columns = new int[q];
+        for(int r=0; r<p; r++)
+            rows[r] = sink.newVariable();
+        for(int c=0; c<q; c++)
+            columns[c] = sink.newVariable();
+        for(int a=0; a<length; a++){
+            sink.addImplication(vars[a], rows[a/q]);
+            sink.addImplication(vars[a], columns[a%q]);
+        }
+        encode(AMO_Encoding.PRODUCT, rows, p, sink);
+        encode(AMO_Encoding.PRODUCT, columns, q, sink);
+    }
+}
@@ -0,0 +1,31 @@
+
+package converters.gi_to_sat;
+
+/** A block of a GI instance: the vertices of graph 1 (rows) and graph 2 (columns) that lie in the same cell
+ *  of the refined partition (see ColourRefinement), without vertices whose mapping has been fixed.
+ *  A vertex can only be mapped to a vertex of its own block, so the variables of a row (type 1 clause) and
+ *  of a column (type 2 clauses) all lie within one block, and the variables of a block are numbered
+ *  consecutively. Type 3 clauses belong to the block of their graph 1 vertex i.
+ *  Thus every block generates its clauses independently of all other blocks, looking only at
+ *  rows*columns candidate variables (plus the edges of its rows), and the blocks can be handled in parallel.
+ *  Large blocks are split into several parts that share the rows and columns of the block: a part generates
+ *  the clauses of rows[from..to-1] (type 1 and 3) and of columns[from..to-1] (type 2).
+ *
+ * @author Frank Mugrauer
+ */
+class CellBlock {
+    final int[] rows;           //vertices of graph 1, ascending
+    final int[] columns;        //vertices of graph 2, ascending (as many as rows)
+    final int from, to;
+    int numAux;                 //number of auxiliary variables the clauses of this part need
+    int auxBase;                //auxiliary variables of this part are auxBase+1 .. auxBase+numAux
+    final long[] numClauses;    //number of clauses of type 1, 2 and 3
+
+    CellBlock(int[] rows, int[] columns, int from, int to){
+        this.rows = rows;
+        this.columns = columns;
+        this.from = from;
+        this.to = to;
+        this.numClauses = new long[3];
+    }
+}
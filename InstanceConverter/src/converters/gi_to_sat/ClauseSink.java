@@ -0,0 +1,114 @@
+
+package converters.gi_to_sat;
+
+import io.OutputWriter;
+
+/** Receives the clauses generated by GI_to_SAT, and hands out numbers for auxiliary variables.
+ *  Since the header of a cnf file needs to state the number of variables and clauses, GI_to_SAT
+ *  generates its clauses twice: once into a sink that only counts them, and once into a sink that writes
+ *  them. Both runs hand out the same auxiliary variables.
+ *  A writing sink either passes its clauses on to an OutputWriter whenever its buffer is full, or (without
+ *  an OutputWriter) keeps all of them, so that clauses can be generated in parallel and written in order
+ *  afterwards (see getText).
+ *
+ * @author Frank Mugrauer
+ */
+class ClauseSink {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private final OutputWriter out;
+    private final StringBuilder buffer;
+    private int numVars;
+    private long numClauses;
+
+    /* creates a sink that only counts clauses, for an instance whose first <numVars> variables are already
+     * in use
+     */
+    ClauseSink(int numVars){
+        this.numVars = numVars;
+        this.out = null;
+        this.buffer = null;
+        this.numClauses = 0;
+    }
+
+    /* creates a sink that writes clauses to <out>, for an instance whose first <numVars> variables are
+     * already in use
+     * if <out> is null, all clauses are kept in memory until they are fetched with getText
+     */
+    ClauseSink(int numVars, OutputWriter out){
+        this.numVars = numVars;
+        this.out = out;
+        this.buffer = new StringBuilder(BUFFER_SIZE + 256);
+        this.numClauses = 0;
+    }
+
+    /* returns the number of a new auxiliary variable
+     */
+    int newVariable(){
+        numVars++;
+        if(numVars < 0)
+            System.out.println("ERROR: Integer overflow in ClauseSink: too many variables!");
+        return numVars;
+    }
+
+    /* adds the clause (~a OR ~b)
+     */
+    void addNegatedBinary(int a, int b) throws Exception{
+        numClauses++;
+        if(buffer == null)
+            return;
+        buffer.append('-').append(a).append(" -").append(b).append(" 0\n");
+        flushIfFull();
+    }
+
+    /* adds the clause (~a OR b)
+     */
+    void addImplication(int a, int b) throws Exception{
+        numClauses++;
+        if(buffer == null)
+            return;
+        buffer.append('-').append(a).append(' ').append(b).append(" 0\n");
+        flushIfFull();
+    }
+
+    /* adds a clause consisting of the first <length> literals in <lits> (negative numbers are negated literals)
+     */
+    void addClause(int[] lits, int length) throws Exception{
+        numClauses++;
+        if(buffer == null)
+            return;
+        for(int i=0; i<length; i++)
+            buffer.append(lits[i]).append(' ');
+        buffer.append("0\n");
+        flushIfFull();
+    }
+
+    int getNumVars(){
+        return numVars;
+    }
+
+    long getNumClauses(){
+        return numClauses;
+    }
+
+    /* returns the clauses written to a sink without OutputWriter, and empties it
+     */
+    String getText(){
+        String text = buffer.toString();
+        buffer.setLength(0);
+        return text;
+    }
+
+    /* writes all buffered clauses to the OutputWriter
+     */
+    void flush() throws Exception{
+        if(out != null && buffer.length() > 0){
+            out.append(buffer.toString());
+            buffer.setLength(0);
+        }
+    }
+
+    private void flushIfFull() throws Exception{
+        if(out != null && buffer.length() >= BUFFER_SIZE)
+            flush();
+    }
+}
@@ -0,0 +1,230 @@
+
+package converters.gi_to_sat;
+
+import java.util.Arrays;
+import model.graph.Graph;
+
+/** Colour refinement (also known as 1-dimensional Weisfeiler-Lehman) on two graphs at once.
+ *  Both graphs are treated as one disjoint union: vertices 0..(n-1) belong to graph 1, vertices n..(2n-1)
+ *  to graph 2. The union is partitioned into cells, starting with one cell per vertex colour.
+ *  A cell is split whenever its vertices have different numbers of neighbours in some other cell (the
+ *  splitter), until the partition is stable, i.e. all vertices in a cell have the same number of
+ *  neighbours in every cell.
+ *  Since both graphs are refined together, an isomorphism can only map a vertex of graph 1 to a vertex of
+ *  graph 2 that lies in the same cell, and the graphs can only be isomorphic if every cell contains
+ *  as many vertices of graph 1 as of graph 2.
+ *
+ *  Cells are stored as contiguous segments of one array of vertices, so splitting a cell only reorders
+ *  that segment. Splitters are processed from a queue; after a cell has been split, all fragments but
+ *  the largest need to be used as splitters (their counts determine those of the largest fragment).
+ *
+ * @author Frank Mugrauer
+ */
+public class ColourRefinement {
+    private final Graph g1, g2;
+    private final int numVerts;
+    private final int[] elements;   //vertices, ordered by cell
+    private final int[] position;   //position[v] = index of v in elements
+    private final int[] cellOf;     //cellOf[v] = cell that contains v
+    private int[] cellStart, cellEnd; //cell c consists of elements[cellStart[c]] .. elements[cellEnd[c]-1]
+    private int numCells;
+    private int[] queue;            //splitters that still need to be processed (ring buffer)
+    private boolean[] inQueue;
+    private int queueHead, queueTail;
+
+    public ColourRefinement(Graph g1, Graph g2){
+        this(g1, g2, colours(g1), colours(g2));
+    }
+
+    /* starts with one cell per initial class instead of one cell per colour (classes need to be >= 0)
+     */
+    public ColourRefinement(Graph g1, Graph g2, int[] classes1, int[] classes2){
+        this.g1 = g1;
+        this.g2 = g2;
+        this.numVerts = g1.getNumVertices();
+        int size = 2*numVerts;
+        elements = new int[size];
+        position = new int[size];
+        cellOf = new int[size];
+        cellStart = new int[Math.max(size, 1)];
+        cellEnd = new int[Math.max(size, 1)];
+        //initial partition: one cell per class
+        long[] keys = new long[size];
+        for(int v=0; v<size; v++)
+            keys[v] = ((long)((v < numVerts) ? classes1[v] : classes2[v-numVerts]) << 32) | v;
+        Arrays.sort(keys);
+        numCells = 0;
+        for(int p=0; p<size; p++){
+            int v = (int)keys[p];
+            if(p == 0 || (keys[p] >>> 32) != (keys[p-1] >>> 32)){
+                if(numCells > 0)
+                    cellEnd[numCells-1] = p;
+                cellStart[numCells] = p;
+                numCells++;
+            }
+            elements[p] = v;
+            position[v] = p;
+            cellOf[v] = numCells-1;
+        }
+        if(numCells > 0)
+            cellEnd[numCells-1] = size;
+    }
+
+    /* refines the partition until it is stable
+     */
+    public void refine(){
+        int size = elements.length;
+        queue = new int[size+1];  //every cell is in the queue at most once, so size+1 entries suffice
+        inQueue = new boolean[size];
+        queueHead = 0;
+        queueTail = 0;
+        for(int c=0; c<numCells; c++)
+            enqueue(c);
+        int[] count = new int[size];        //number of neighbours in the current splitter
+        int[] touched = new int[size];      //vertices with count > 0
+        int[] touchedCells = new int[size];
+        int[] splitPoint = new int[size];   //touched vertices of cell c are moved to elements[splitPoint[c]..cellEnd[c]-1]
+        for(int c=0; c<size; c++)
+            splitPoint[c] = -1;
+        while(queueHead != queueTail){
+            int splitter = queue[queueHead];
+            queueHead = (queueHead+1) % queue.length;
+            inQueue[splitter] = false;
+            //count neighbours in the splitter
+            int numTouched = 0;
+            for(int p=cellStart[splitter]; p<cellEnd[splitter]; p++){
+                int v = elements[p];
+                int[] neighbours = neighbours(v);
+                int offset = (v < numVerts) ? 0 : numVerts;
+                for(int u : neighbours){
+                    u += offset;
+                    if(count[u] == 0)
+                        touched[numTouched++] = u;
+                    count[u]++;
+                }
+            }
+            //move touched vertices to the end of their cells
+            int numTouchedCells = 0;
+            for(int t=0; t<numTouched; t++){
+                int u = touched[t];
+                int c = cellOf[u];
+                if(splitPoint[c] == -1){
+                    splitPoint[c] = cellEnd[c];
+                    touchedCells[numTouchedCells++] = c;
+                }
+                splitPoint[c]--;
+                swap(position[u], splitPoint[c]);
+            }
+            //split touched cells by their number of neighbours in the splitter
+            for(int t=0; t<numTouchedCells; t++){
+                int c = touchedCells[t];
+                int from = splitPoint[c];
+                splitPoint[c] = -1;
+                split(c, from, count);
+            }
+            for(int t=0; t<numTouched; t++)
+                count[touched[t]] = 0;
+        }
+    }
+
+    /* splits cell c: vertices elements[cellStart[c]..from-1] have no neighbours in the splitter, vertices from
+     * elements[from] onwards have count[v] > 0 neighbours in it. The new cells are appended to the queue.
+     */
+    private void split(int c, int from, int[] count){
+        int start = cellStart[c], end = cellEnd[c];
+        long[] keys = new long[end-from];
+        for(int p=from; p<end; p++)
+            keys[p-from] = ((long)count[elements[p]] << 32) | elements[p];
+        Arrays.sort(keys);
+        for(int p=from; p<end; p++){
+            elements[p] = (int)keys[p-from];
+            position[elements[p]] = p;
+        }
+        //collect the boundaries of the fragments
+        int numFragments = 0;
+        int[] bounds = new int[end-from+2];
+        if(from > start)
+            bounds[numFragments++] = start;
+        for(int p=from; p<end; p++)
+            if(p == from || count[elements[p]] != count[elements[p-1]])
+                bounds[numFragments++] = p;
+        bounds[numFragments] = end;
+        if(numFragments == 1)
+            return;
+        //the first fragment keeps the id of the original cell, the others get new ids
+        int largest = 0;
+        for(int f=0; f<numFragments; f++)
+            if(bounds[f+1]-bounds[f] > bounds[largest+1]-bounds[largest])
+                largest = f;
+        boolean wasInQueue = inQueue[c];
+        cellEnd[c] = bounds[1];
+        for(int f=0; f<numFragments; f++){
+            int cell = c;
+            if(f > 0){
+                cell = numCells++;
+                cellStart[cell] = bounds[f];
+                cellEnd[cell] = bounds[f+1];
+                for(int p=bounds[f]; p<bounds[f+1]; p++)
+                    cellOf[elements[p]] = cell;
+            }
+            if(!inQueue[cell] && (wasInQueue || f != largest))
+                enqueue(cell);
+        }
+    }
+
+    private void enqueue(int cell){
+        queue[queueTail] = cell;
+        queueTail = (queueTail+1) % queue.length;
+        inQueue[cell] = true;
+    }
+
+    /* returns whether every cell contains the same number of vertices from both graphs.
+     * If it doesn't, the graphs are certainly not isomorphic.
+     */
+    public boolean isBalanced(){
+        for(int c=0; c<numCells; c++){
+            int inGraph1 = 0;
+            for(int p=cellStart[c]; p<cellEnd[c]; p++)
+                if(elements[p] < numVerts)
+                    inGraph1++;
+            if(2*inGraph1 != cellEnd[c]-cellStart[c])
+                return false;
+        }
+        return true;
+    }
+
+    public int getNumCells(){
+        return numCells;
+    }
+
+    /* returns the cell of vertex v of graph 1
+     */
+    public int getCell1(int v){
+        return cellOf[v];
+    }
+
+    /* returns the cell of vertex v of graph 2
+     */
+    public int getCell2(int v){
+        return cellOf[numVerts+v];
+    }
+
+    private static int[] colours(Graph g){
+        int[] colours = new int[g.getNumVertices()];
+        for(int v=0; v<colours.length; v++)
+            colours[v] = g.getColour(v);
+        return colours;
+    }
+
+    private int[] neighbours(int v){
+        return (v < numVerts) ? g1.getNeighbours(v) : g2.getNeighbours(v-numVerts);
+    }
+
+    private void swap(int p1, int p2){
+        int v1 = elements[p1], v2 = elements[p2];
+        elements[p1] = v2;
+        elements[p2] = v1;
+        position[v1] = p2;
+        position[v2] = p1;
+    }
+}
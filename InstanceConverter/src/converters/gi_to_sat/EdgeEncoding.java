@@ -0,0 +1,14 @@
+
+package converters.gi_to_sat;
+
+/** Represents the ways of encoding the type 3 constraints of GI_to_SAT, "edges are mapped to edges"
+ *  - CONFLICT: (~x_ik OR ~x_jl) for every edge (i,j) in graph 1 and every non-edge (k,l) in graph 2
+ *  - SUPPORT: (~x_ik OR x_jl1 OR x_jl2 ...) for every edge (i,j) in graph 1 and every vertex k in graph 2,
+ *      where l1, l2, ... are the neighbours of k in graph 2
+ *  - AUTO: whichever of the two is estimated to result in the smaller instance
+ *
+ * @author Frank Mugrauer
+ */
+public enum EdgeEncoding {
+    CONFLICT,SUPPORT,AUTO;
+}
@@ -0,0 +1,110 @@
+
+package converters.gi_to_sat;
+
+import java.util.EnumSet;
+
+/** Options for the conversion of a GI (Graph Isomorphism) problem into a SAT problem
+ *  (see GI_to_SAT). A GI_to_SAT converter keeps a reference to its options, so an options
+ *  object should not be changed while a conversion is running.
+ *
+ * @author Frank Mugrauer
+ */
+public class GI_Options {
+    private boolean simplify;
+    private AMO_Encoding amoEncoding;
+    private EdgeEncoding edgeEncoding;
+    private boolean complement;
+    private boolean propagate;
+    private int threads;
+    private EnumSet<VertexInvariant> invariants;
+
+    /* creates the default options: no simplification, pairwise encoding of type 2 clauses,
+     * automatic choice of the encoding of type 3 clauses, complement graphs are used for dense graphs,
+     * forced mappings are propagated, clauses are generated by a single thread, no vertex invariants
+     */
+    public GI_Options(){
+        this.simplify = false;
+        this.amoEncoding = AMO_Encoding.PAIRWISE;
+        this.edgeEncoding = EdgeEncoding.AUTO;
+        this.complement = true;
+        this.propagate = true;
+        this.threads = 1;
+        this.invariants = EnumSet.noneOf(VertexInvariant.class);
+    }
+
+    /* if set, the converter will attempt to simplify the resulting sat instance by omitting variables
+     * for vertices that cannot possibly be mapped to one another
+     */
+    public boolean isSimplify() {
+        return simplify;
+    }
+
+    public void setSimplify(boolean simplify) {
+        this.simplify = simplify;
+    }
+
+    /* encoding of the type 2 constraints, "no two vertices are mapped to the same vertex"
+     * (see AtMostOne)
+     */
+    public AMO_Encoding getAMO_Encoding() {
+        return amoEncoding;
+    }
+
+    public void setAMO_Encoding(AMO_Encoding amoEncoding) {
+        this.amoEncoding = amoEncoding;
+    }
+
+    /* encoding of the type 3 constraints, "edges are mapped to edges" (see EdgeEncoding)
+     */
+    public EdgeEncoding getEdgeEncoding() {
+        return edgeEncoding;
+    }
+
+    public void setEdgeEncoding(EdgeEncoding edgeEncoding) {
+        this.edgeEncoding = edgeEncoding;
+    }
+
+    /* if set, the type 3 constraints of graphs with more edges than non-edges are encoded over the complement
+     * graphs (two graphs are isomorphic if and only if their complements are)
+     */
+    public boolean isComplement() {
+        return complement;
+    }
+
+    public void setComplement(boolean complement) {
+        this.complement = complement;
+    }
+
+    /* if set, mappings that are forced after simplification are fixed before the clauses are generated,
+     * and their consequences are propagated (see Propagation)
+     */
+    public boolean isPropagate() {
+        return propagate;
+    }
+
+    public void setPropagate(boolean propagate) {
+        this.propagate = propagate;
+    }
+
+    /* number of threads that generate the clauses of the blocks of the instance (see CellBlock)
+     * the resulting instance is the same for any number of threads
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = Math.max(threads, 1);
+    }
+
+    /* vertex invariants that rule out mappings before colour refinement, if the instance is simplified
+     * (see VertexInvariants)
+     */
+    public EnumSet<VertexInvariant> getInvariants() {
+        return invariants;
+    }
+
+    public void setInvariants(EnumSet<VertexInvariant> invariants) {
+        this.invariants = invariants;
+    }
+}
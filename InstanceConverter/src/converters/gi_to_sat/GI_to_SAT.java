@@ -2,487 +2,556 @@
 package converters.gi_to_sat;
 
 import io.OutputWriter;
-import java.util.LinkedList;
-import model.basic.Literal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import model.graph.Graph;
-import model.sat.SAT_Instance;
 
 /** Converts a problem specification for the GI (Graph Isomorphism) problem (in the form of two graphs) into
  *  a problem specification for the SAT (Satisfiability) problem.
  *  expects the graphs to have equal number of vertices and edges
  *  can be told to simplify the resulting sat instance by checking whether two vertices that could potentially be
- *  mapped to one another have matching degrees
- *  Returns the mapping of variables in matrix form, e.g.
- *      varNames[i][j] = x
- *  means that if the sat solver determines variable to be true, then vertex i+1 in graph 1 should be
- *  mapped to vertex j+1 in graph 2
- *  if varNames[i][j] = -1 this means that the converter has determined that vertex i+1 cannot be mapped to
- *  vertex j+1, and thus the variable is omitted
+ *  mapped to one another end up in the same cell when refining the vertex colours of both graphs
+ *  (see ColourRefinement)
+ *  Variables and clauses are organised in blocks, one per cell (see CellBlock), which can be generated by
+ *  several threads (see GI_Options.setThreads)
+ *  Returns the mapping of variables to pairs of vertices (see VariableMapping), which only stores the
+ *  variables that are left after simplification
+ *  The conversion is done in two steps: prepare() finds out everything about the instance, and may find out
+ *  that the graphs are not isomorphic (see NotIsomorphicException) before anything is written, write()
+ *  generates the clauses.
  *
  *
  * @author Frank Mugrauer
  */
 public class GI_to_SAT {
-    private static int numVerts;
-    private static int[][] varNames;
-    private static boolean[][] varIsFalse;
+    //blocks are split into parts of about this many literals (estimated), so that a part that is waiting to
+    //be written doesn't take up too much memory
+    private static final long PART_SIZE = 1 << 18;
+    private final GI_Options options;
+    private int numVerts;
+    private VariableMapping mapping;
+    private EdgeEncoding edgeEncoding;
+    private CellBlock[] blocks;
+    private int numCellBlocks;
+    private Graph h1, h2;           //graphs that the type 3 clauses are generated for
+    private int maxDegree;          //maximum degree in graph 2 (or its complement)
 
-    public static int[][] convert(Graph g1, Graph g2, boolean simplify) throws Exception{
+    public GI_to_SAT(GI_Options options){
+        this.options = options;
+    }
+
+    /* converts the GI problem for graphs g1 and g2 into a sat instance in cnf, which is written to <out>
+     * (the caller is responsible for opening and closing <out>)
+     */
+    public VariableMapping convert(Graph g1, Graph g2, OutputWriter out) throws Exception{
+        prepare(g1, g2);
+        return write(out);
+    }
+
+    /* does all the work of converting the GI problem for graphs g1 and g2 that doesn't need the output,
+     * i.e. checks invariants of the graphs, simplifies the instance and numbers its variables
+     * Throws a NotIsomorphicException if the graphs turn out not to be isomorphic, so callers can call this
+     * before creating any files.
+     */
+    public void prepare(Graph g1, Graph g2) throws Exception{
+        boolean simplify = options.isSimplify();
         long startTime = System.currentTimeMillis();
-        if(g1.getNumVertices() != g2.getNumVertices())
-            throw new Exception("Mismatched number of vertices in graphs: "+g1.getNumVertices()
-                    +" and "+g2.getNumVertices()+"\nThe graphs are certainly NOT isomorphic!");
-        if(g1.getNumEdges() != g2.getNumEdges())
-            throw new Exception("Mismatched number of edges in graphs: "+g1.getNumEdges()
-                    +" and "+g2.getNumEdges()+"\nThe graphs are certainly NOT isomorphic!");
+        checkInvariants(g1, g2);
         numVerts = g1.getNumVertices();
         long time;
         int remVar = 0;
-        varIsFalse = new boolean[numVerts][numVerts];
+        //cell1[i] / cell2[k] = cell of vertex i of graph 1 / vertex k of graph 2
+        //without simplification, all vertices are in the same cell
+        int[] cell1 = new int[numVerts];
+        int[] cell2 = new int[numVerts];
+        int numCells = (numVerts > 0) ? 1 : 0;
         if(simplify){
             time = System.currentTimeMillis();
-            int degDepth = 5;
-            int[][] secDeg1 = new int[numVerts][degDepth];
-            int[][] secDeg2 = new int[numVerts][degDepth];
-            if(degDepth > 0){
-                for(int i=0; i<numVerts; i++){
-                    for(int j=0; j<i; j++){
-                        //we sum up the degrees of all neighbours of i and j
-                        //neghbour-degree-sum of i and j in graph1 are stored in secDeg1
-                        //while those in graph2 are stored in secDeg2
-                        if(g1.containsEdge(i, j)){
-                            secDeg1[i][0] += g1.getDegree(j);
-                            secDeg1[j][0] += g1.getDegree(i);
-                        }
-                        if(g2.containsEdge(i, j)){
-                            secDeg2[i][0] += g2.getDegree(j);
-                            secDeg2[j][0] += g2.getDegree(i);
-                        }
-                    }
-                }
+            //vertices can only be mapped to one another if they have the same colour and vertex invariants
+            int[] classes1 = new int[numVerts];
+            int[] classes2 = new int[numVerts];
+            long[] colours1 = new long[numVerts];
+            long[] colours2 = new long[numVerts];
+            for(int v=0; v<numVerts; v++){
+                colours1[v] = g1.getColour(v);
+                colours2[v] = g2.getColour(v);
             }
-            for(int depth=1; depth<degDepth; depth++){
-                for(int i=0; i<numVerts; i++){
-                    for(int j=0; j<i; j++){
-                        if(g1.containsEdge(i, j)){
-                            secDeg1[i][depth] += secDeg1[j][depth-1];
-                            secDeg1[j][depth] += secDeg1[i][depth-1];
-                        }
-                        if(g2.containsEdge(i, j)){
-                            secDeg2[i][depth] += secDeg2[j][depth-1];
-                            secDeg2[j][depth] += secDeg2[i][depth-1];
-                        }
-                    }
-                }
-            }
-            //Remove variables with non-matching degrees
-            for(int i=0; i<numVerts; i++){
-                for(int j=0; j<numVerts; j++){
-                    if((g1.getDegree(i) != g2.getDegree(j))){
-                        varIsFalse[i][j] = true;
-                        remVar++;
-                        continue;
-                    }
-                    for(int depth=0; depth<degDepth; depth++){
-                        if(secDeg1[i][depth] != secDeg2[j][depth]){
-                            varIsFalse[i][j] = true;
-                            remVar++;
-                            break;
-                        }
-                    }
-                }
-            }
-
-            //sorting out colours
+            splitClasses(classes1, classes2, colours1, colours2);
+            if(!options.getInvariants().isEmpty())
+                applyInvariants(g1, g2, classes1, classes2);
+            //...and if colour refinement puts them into the same cell
+            ColourRefinement refinement = new ColourRefinement(g1, g2, classes1, classes2);
+            refinement.refine();
+            if(!refinement.isBalanced())
+                throw new NotIsomorphicException("Colour refinement resulted in cells of different sizes in the two graphs");
+            numCells = refinement.getNumCells();
             for(int i=0; i<numVerts; i++){
-                for(int j=0; j<numVerts; j++){
-                    if(!varIsFalse[i][j] && g1.getColour(i) != g2.getColour(j)){
-                        varIsFalse[i][j] = true;
-                        remVar++;
-                    }
-                }
+                cell1[i] = refinement.getCell1(i);
+                cell2[i] = refinement.getCell2(i);
             }
+            int[][] members = cellMembers(cell2, numCells);
+            for(int i=0; i<numVerts; i++)
+                remVar += numVerts-members[cell1[i]].length;
+            System.out.println("Colour refinement found "+numCells+" cells.");
             double remPercent = 1000 * (((double)remVar)/((double)numVerts*numVerts));
             remPercent = Math.round(remPercent)/10d;
             System.out.println("Simplification removed "+remVar+" variables ("+remPercent+"%) and took "
                     +(System.currentTimeMillis()-time)+"ms.");
         }
-        time = System.currentTimeMillis();
-        int clauses = numVerts; //type1
-        clauses += (numVerts*numVerts*(numVerts-1)/2); //type2
-        int edges = g1.getNumEdges();
-        clauses += 2 * edges * ((numVerts*(numVerts-1)/2)-edges); //type3
-        int numClauses = countClauses(simplify, remVar, g1, g2);
-        System.out.println("Count: , calc: \n"+numClauses+"\n"+clauses);
-        System.out.println("CountClauses: "+(System.currentTimeMillis()-time));
-        varNames = new int[numVerts][numVerts];
-        int count = 1;
+        int[][] rowsOf = cellMembers(cell1, numCells);
+        int[][] columnsOf = cellMembers(cell2, numCells);
+        //targets[i] = vertices in graph 2 that vertex i may be mapped to
+        int[] fixedTarget = new int[numVerts];
+        int[][] targets = new int[numVerts][];
         for(int i=0; i<numVerts; i++){
-            for(int j=0; j<numVerts; j++){
-                if(!varIsFalse[i][j]){
-                    varNames[i][j] = count;
-                    count++;
-                }
-                else
-                    varNames[i][j] = -1;
-            }
+            fixedTarget[i] = -1;
+            targets[i] = columnsOf[cell1[i]];
         }
-        OutputWriter.append("p cnf "+(numVerts*numVerts -remVar)+" "+numClauses+"\n");
-        System.out.println("Instance has "+(numVerts*numVerts -remVar)+" variables (down from "
-                +(numVerts*numVerts)+") and "+numClauses+" clauses!");
-
-
-        //type 1 clauses
-        for(int i=0; i<numVerts; i++){
-            StringBuilder clause = new StringBuilder(numVerts*2);
-            for(int j=0; j<numVerts; j++){
-                if(varIsFalse[i][j])
-                    continue;
-                clause.append(varNames[i][j]);
-                clause.append(" ");
-            }
-            if(clause.length()==0){
-                throw new Exception("Simplifying instance resulted in empty clause: \n"
-                        +"Vertex "+(i+1)+"'s degrees do not match the degrees of any vertex in graph 2\n"
-                        +"The graphs are certainly NOT isomorphic!");
-            }
-            clause.append("0\n");
-            OutputWriter.append(clause.toString());
+        if(options.isPropagate()){
+            time = System.currentTimeMillis();
+            Propagation propagation = new Propagation(g1, g2, cell1, cell2, rowsOf, columnsOf);
+            fixedTarget = propagation.run();
+            for(int i=0; i<numVerts; i++)
+                if(fixedTarget[i] != -1 || propagation.getNumTargets(i) < targets[i].length)
+                    targets[i] = propagation.getTargets(i);
+            System.out.println("Propagation fixed "+propagation.getNumFixed()+" mappings and removed "
+                    +propagation.getNumRemoved()+" variables in "+(System.currentTimeMillis()-time)+"ms.");
         }
-        //type 2 clauses
-        for(int j=0; j<numVerts; j++){
-            for(int k=0; k<numVerts; k++){
-                if(varIsFalse[j][k])
-                    continue;
-                for(int i=0; i<j; i++){
-                    //for type two, we create clauses in which every literal is negated
-                    //thus, if one of the literals is always false, the clause is always true and
-                    //we don't add it (if simplifying the instance is requested)
-                    if(varIsFalse[i][k])
-                        continue;
-                    OutputWriter.append("-"+varNames[i][k]+" -"+varNames[j][k]+" 0\n");
-                }
-            }
+        CellBlock[] cellBlocks = createBlocks(rowsOf, columnsOf, fixedTarget);
+        numCellBlocks = cellBlocks.length;
+        mapping = new VariableMapping(numVerts, fixedTarget, cellBlocks, targets);
+        int numVars = mapping.getNumVariables();
+        //graphs with more edges than non-edges have their type 3 clauses encoded over the complement graphs,
+        //so that only the rarer of edges and non-edges is enumerated
+        h1 = g1;
+        h2 = g2;
+        long numPairs = (long)numVerts*(numVerts-1)/2;
+        if(options.isComplement() && 2L*g1.getNumEdges() > numPairs){
+            h1 = g1.complement();
+            h2 = g2.complement();
+            if(h1.getNumEdges() != h2.getNumEdges())
+                throw new NotIsomorphicException("Mismatched number of self-loops in graphs");
+            System.out.println("Graphs are dense, using complement graphs ("+h1.getNumEdges()+" edges) for edge clauses.");
         }
-        //type 3 clauses
-        for(int j=0; j<numVerts; j++){
-            for(int i=0; i<j; i++){
-                if(!g1.containsEdge(i, j))
-                    continue;
-                for(int k=0; k<numVerts; k++){
-                    if(varIsFalse[i][k])
-                        continue;
-                    for(int l=0; l<numVerts; l++){
-                        //for type three, we create clauses in which every literal is negated
-                        //thus, if one of the literals is always false, the clause is always true and
-                        //we don't add it (if simplifying the instance is requested)
-                        if(varIsFalse[j][l] || k==l || g2.containsEdge(k, l))
-                            continue;
-                        OutputWriter.append("-"+varNames[i][k]+" -"+varNames[j][l]+" 0\n");
-                    }
-                }
+        edgeEncoding = options.getEdgeEncoding();
+        if(edgeEncoding == EdgeEncoding.AUTO)
+            edgeEncoding = chooseEdgeEncoding(h2, numVars);
+        System.out.println("Edge encoding: "+edgeEncoding);
+        maxDegree = 0;
+        for(int k=0; k<numVerts; k++)
+            maxDegree = Math.max(maxDegree, h2.getNeighbours(k).length);
+        blocks = splitBlocks(cellBlocks, h1);
+        System.out.println("Preparation took "+(System.currentTimeMillis()-startTime)+" ms.");
+    }
+
+    /* writes the sat instance prepared by prepare() to <out>, and returns the mapping of its variables
+     */
+    public VariableMapping write(OutputWriter out) throws Exception{
+        long time = System.currentTimeMillis();
+        int numVars = mapping.getNumVariables();
+        ExecutorService executor = null;
+        if(options.getThreads() > 1)
+            executor = Executors.newFixedThreadPool(options.getThreads());
+        try{
+            //dry run: the cnf header needs the number of clauses and (auxiliary) variables
+            countClauses(h1, h2, executor);
+            long[] numClauses = new long[3];
+            int numAux = 0;
+            for(CellBlock block : blocks){
+                block.auxBase = numVars+numAux;
+                numAux += block.numAux;
+                if(numAux < 0)
+                    System.out.println("ERROR: Integer overflow in GI_to_SAT: too many variables!");
+                for(int type=0; type<3; type++)
+                    numClauses[type] += block.numClauses[type];
             }
+            long n = numVerts;
+            long edges = h1.getNumEdges();
+            long total = numClauses[0]+numClauses[1]+numClauses[2];
+            System.out.println("Instance has "+numCellBlocks+" blocks ("+blocks.length+" parts).");
+            System.out.println("Type 1 clauses: "+numClauses[0]);
+            System.out.println("Type 2 clauses: "+numClauses[1]+" (pairwise, unsimplified: "+(n*n*(n-1)/2)+")");
+            System.out.println("Type 3 clauses: "+numClauses[2]+" (unsimplified, conflict encoding: "
+                    +(2 * edges * (n*(n-1)/2-edges))+")");
+            System.out.println("CountClauses: "+(System.currentTimeMillis()-time));
+            out.append("p cnf "+(numVars+numAux)+" "+total+"\n");
+            System.out.println("Instance has "+numVars+" variables (down from "+(n*n)+"), "
+                    +numAux+" auxiliary variables and "+total+" clauses!");
+            writeClauses(h1, h2, executor, out);
+        }finally{
+            if(executor != null)
+                executor.shutdownNow();
         }
         System.out.println("Convertions took "+(System.currentTimeMillis()-time)+" ms.");
-        System.out.println("TOTAL TIME: "+(System.currentTimeMillis()-startTime)+" ms.");
-        return varNames;
+        return mapping;
     }
 
-    /* OUTDATED as of 2013-05-08(new version has optimised perfomance)
-    public static int[][] convert(Graph g1, Graph g2, boolean simplify) throws Exception{
-        //long startTime = System.currentTimeMillis();
-        if(g1.getNumVertices() != g2.getNumVertices())
-            throw new Exception("Mismatched number of vertices in graphs: "+g1.getNumVertices()
-                    +" and "+g2.getNumVertices()+"\nThe graphs are certainly NOT isomorphic!");
+    /* compares invariants of the graphs that are cheap to compute: numbers of vertices and edges, the number
+     * of vertices of every colour and the sorted degree sequences
+     */
+    private static void checkInvariants(Graph g1, Graph g2) throws Exception{
+        int n = g1.getNumVertices();
+        if(n != g2.getNumVertices())
+            throw new NotIsomorphicException("Mismatched number of vertices in graphs: "+n
+                    +" and "+g2.getNumVertices());
         if(g1.getNumEdges() != g2.getNumEdges())
-            throw new Exception("Mismatched number of edges in graphs: "+g1.getNumEdges()
-                    +" and "+g2.getNumEdges()+"\nThe graphs are certainly NOT isomorphic!");
-        numVerts = g1.getNumVertices();
-
-        long time;
-        //SAT_Instance sat = new SAT_Instance(numVerts*numVerts);
-        int remVar = 0;
-        varIsFalse = new boolean[numVerts][numVerts];
-        if(simplify){
-            time = System.currentTimeMillis();
-            //varIsFalse is an array which stores information on variables where we detected that they
-            //always need to be set to false
-            //for instance, if vertex i in graph1 had a degree of 3, and vertex k in graph2 had degree of 7,
-            //we know that i can't be mapped to k, and thus the variable x_{i,k} is always false
-            //we store this information in varIsFalse for later use
-
+            throw new NotIsomorphicException("Mismatched number of edges in graphs: "+g1.getNumEdges()
+                    +" and "+g2.getNumEdges());
+        int[] colours1 = new int[n], colours2 = new int[n];
+        int[] degrees1 = new int[n], degrees2 = new int[n];
+        for(int v=0; v<n; v++){
+            colours1[v] = g1.getColour(v);
+            colours2[v] = g2.getColour(v);
+            degrees1[v] = g1.getDegree(v);
+            degrees2[v] = g2.getDegree(v);
+        }
+        Arrays.sort(colours1);
+        Arrays.sort(colours2);
+        for(int p=0; p<n; p++)
+            if(colours1[p] != colours2[p])
+                throw new NotIsomorphicException("Mismatched colours in graphs: colour "
+                        +Math.min(colours1[p], colours2[p])+" is used a different number of times");
+        Arrays.sort(degrees1);
+        Arrays.sort(degrees2);
+        for(int p=0; p<n; p++)
+            if(degrees1[p] != degrees2[p])
+                throw new NotIsomorphicException("Mismatched degree sequences in graphs: "
+                        +"degree "+Math.min(degrees1[p], degrees2[p])+" occurs a different number of times");
+    }
 
-            //checking degrees
-            //secDeg1[i][j] is the sum of the degrees of all j-distance-neighbours of i in graph 1
-            //secDeg2[i][j] is the sum of the degrees of all j-distance-neighbours of i in graph 2
-            int degDepth = 5;
-            int[][] secDeg1 = new int[numVerts][degDepth];
-            int[][] secDeg2 = new int[numVerts][degDepth];
-            if(degDepth > 0){
-                for(int i=0; i<numVerts; i++){
-                    for(int j=0; j<i; j++){
-                        //we sum up the degrees of all neighbours of i and j
-                        //neghbour-degree-sum of i and j in graph1 are stored in secDeg1
-                        //while those in graph2 are stored in secDeg2
-                        if(g1.containsEdge(i, j)){
-                            secDeg1[i][0] += g1.getDegree(j);
-                            secDeg1[j][0] += g1.getDegree(i);
-                        }
-                        if(g2.containsEdge(i, j)){
-                            secDeg2[i][0] += g2.getDegree(j);
-                            secDeg2[j][0] += g2.getDegree(i);
-                        }
-                    }
-                }
-            }
-            for(int depth=1; depth<degDepth; depth++){
-                for(int i=0; i<numVerts; i++){
-                    for(int j=0; j<i; j++){
-                        if(g1.containsEdge(i, j)){
-                            secDeg1[i][depth] += secDeg1[j][depth-1];
-                            secDeg1[j][depth] += secDeg1[i][depth-1];
-                        }
-                        if(g2.containsEdge(i, j)){
-                            secDeg2[i][depth] += secDeg2[j][depth-1];
-                            secDeg2[j][depth] += secDeg2[i][depth-1];
-                        }
-                    }
-                }
-            }
-            for(int i=0; i<numVerts; i++){
-                for(int j=0; j<numVerts; j++){
-                    if((g1.getDegree(i) != g2.getDegree(j))){
-                        varIsFalse[i][j] = true;
-                        remVar++;
-                        continue;
-                    }
-                    for(int depth=0; depth<degDepth; depth++){
-                        if(secDeg1[i][depth] != secDeg2[j][depth]){
-                            varIsFalse[i][j] = true;
-                            remVar++;
-                            break;
-                        }
-                    }
-                }
-            }
-            int conDepth = 0;
-            secDeg1 = new int[numVerts][conDepth];
-            secDeg2 = new int[numVerts][conDepth];
-            boolean[][] con1 = new boolean[numVerts][numVerts];
-            boolean[][] con2 = new boolean[numVerts][numVerts];
-            if(conDepth > 0){
-                for(int i=0; i<numVerts; i++){
-                    for(int j=0; j<i; j++){
-                        if(g1.containsEdge(i, j)){
-                            con1[i][j]=true;
-                            con1[j][i]=true;
-                        }
-                        if(g2.containsEdge(i,j)){
-                            con2[i][j]=true;
-                            con2[j][i]=true;
-                        }
-                    }
-                }
-            }
-            for(int k=0; k<conDepth; k++){
-                for(int i=0; i<numVerts; i++){
-                    secDeg1[i][k] = 0;
-                    secDeg2[i][k] = 0;
-                    LinkedList<Integer> con1l = new LinkedList<Integer>();
-                    LinkedList<Integer> con2l = new LinkedList<Integer>();
-                    for(int j=0; j<numVerts; j++){
-                        if(j==i)
-                            continue;
-                        if(con1[i][j]){
-                            for(int l=0; l<numVerts; l++)
-                                if(g1.containsEdge(j, l))
-                                    con1l.add(l);
-                        }
-                        if(con2[i][j]){
-                            for(int l=0; l<numVerts; l++)
-                                if(g2.containsEdge(j, l))
-                                    con2l.add(l);
-                        }
-                    }
-                    while(!con1l.isEmpty())
-                        con1[i][con1l.remove()] = true;
-                    while(!con2l.isEmpty())
-                        con2[i][con2l.remove()] = true;
-                    for(int j=0; j<numVerts; j++){
-                        if(con1[i][j])
-                            secDeg1[i][k]++;
-                        if(con2[i][j])
-                            secDeg2[i][k]++;
-                    }
-                }
-            }
-            for(int i=0; i<numVerts; i++){
-                for(int j=0; j<numVerts; j++){
-                    for(int k=0; k<conDepth; k++){
-                        if(!varIsFalse[i][j] && secDeg1[i][k] != secDeg2[j][k]){
-                            varIsFalse[i][j] = true;
-                            remVar++;
-                            break;
-                        }
-                    }
-                }
+    /* splits the classes of vertices by the vertex invariants in the options, and prints how many variables
+     * every invariant has ruled out
+     */
+    private void applyInvariants(Graph g1, Graph g2, int[] classes1, int[] classes2) throws Exception{
+        ExecutorService executor = null;
+        if(options.getThreads() > 1)
+            executor = Executors.newFixedThreadPool(options.getThreads());
+        try{
+            VertexInvariants invariants1 = new VertexInvariants(g1, executor, options.getThreads());
+            VertexInvariants invariants2 = new VertexInvariants(g2, executor, options.getThreads());
+            for(VertexInvariant invariant : options.getInvariants()){
+                long time = System.currentTimeMillis();
+                long removed = splitClasses(classes1, classes2, invariants1.compute(invariant),
+                        invariants2.compute(invariant));
+                System.out.println("Vertex invariant "+invariant+" removed "+removed+" variables and took "
+                        +(System.currentTimeMillis()-time)+"ms.");
+                if(removed < 0)
+                    throw new NotIsomorphicException("The vertex invariant "+invariant
+                            +" has different values in the two graphs");
             }
+        }finally{
+            if(executor != null)
+                executor.shutdownNow();
+        }
+    }
 
-            //sorting out colours
-            for(int i=0; i<numVerts; i++){
-                for(int j=0; j<numVerts; j++){
-                    if(!varIsFalse[i][j] && g1.getColour(i) != g2.getColour(j)){
-                        varIsFalse[i][j] = true;
-                        remVar++;
-                    }
-                }
-            }
+    /* replaces the class of every vertex by a number for the pair (class, value), so that two vertices
+     * end up in the same class if they had the same class and have the same value, and returns the number
+     * of mappings between vertices of the same class this rules out
+     * (or -1 if a class contains different numbers of vertices from both graphs)
+     */
+    private static long splitClasses(int[] classes1, int[] classes2, long[] values1, long[] values2){
+        int n = classes1.length;
+        //replace the values by their rank among all values, then combine class and rank into one key
+        long[] sorted = new long[2*n];
+        System.arraycopy(values1, 0, sorted, 0, n);
+        System.arraycopy(values2, 0, sorted, n, n);
+        Arrays.sort(sorted);
+        long[] keys = new long[2*n];
+        for(int v=0; v<n; v++){
+            keys[v] = ((long)classes1[v] << 32) | Arrays.binarySearch(sorted, values1[v]);
+            keys[n+v] = ((long)classes2[v] << 32) | Arrays.binarySearch(sorted, values2[v]);
+        }
+        long before = pairsPerClass(classes1, classes2);
+        long[] sortedKeys = keys.clone();
+        Arrays.sort(sortedKeys);
+        int numKeys = 0;
+        for(int p=0; p<sortedKeys.length; p++)
+            if(p == 0 || sortedKeys[p] != sortedKeys[p-1])
+                sortedKeys[numKeys++] = sortedKeys[p];
+        for(int v=0; v<n; v++){
+            classes1[v] = Arrays.binarySearch(sortedKeys, 0, numKeys, keys[v]);
+            classes2[v] = Arrays.binarySearch(sortedKeys, 0, numKeys, keys[n+v]);
+        }
+        long after = pairsPerClass(classes1, classes2);
+        return (after < 0) ? -1 : before-after;
+    }
 
+    /* returns the number of pairs of a vertex of graph 1 and one of graph 2 with the same class, or -1 if a
+     * class contains different numbers of vertices from both graphs
+     */
+    private static long pairsPerClass(int[] classes1, int[] classes2){
+        int n = classes1.length;
+        int[] count1 = new int[2*n+1], count2 = new int[2*n+1];
+        for(int v=0; v<n; v++){
+            count1[classes1[v]]++;
+            count2[classes2[v]]++;
+        }
+        long pairs = 0;
+        for(int c=0; c<count1.length; c++){
+            if(count1[c] != count2[c])
+                return -1;
+            pairs += (long)count1[c]*count1[c];
+        }
+        return pairs;
+    }
 
-            double remPercent = 1000 * (((double)remVar)/((double)numVerts*numVerts));
-            remPercent = Math.round(remPercent)/10d;
-            System.out.println("Simplification removed "+remVar+" variables ("+remPercent+"%) and took "
-                    +(System.currentTimeMillis()-time)+"ms.");
-            //System.out.println("simplify: "+(System.currentTimeMillis()-time));
+    /* returns the vertices of every cell, given the cell of every vertex
+     */
+    private static int[][] cellMembers(int[] cellOf, int numCells){
+        int[][] members = new int[numCells][];
+        int[] size = new int[numCells];
+        for(int v=0; v<cellOf.length; v++)
+            size[cellOf[v]]++;
+        for(int c=0; c<numCells; c++){
+            members[c] = new int[size[c]];
+            size[c] = 0;
         }
-        time = System.currentTimeMillis();
-        int numClauses = countClauses(simplify, g1, g2);
-        varNames = new int[numVerts][numVerts];
-        int count = 1;
-        for(int i=0; i<numVerts; i++){
-            for(int j=0; j<numVerts; j++){
-                if(!varIsFalse[i][j]){
-                    varNames[i][j] = count;
+        for(int v=0; v<cellOf.length; v++)
+            members[cellOf[v]][size[cellOf[v]]++] = v;
+        return members;
+    }
+
+    /* creates one block per cell, leaving out fixed vertices and their targets (and cells that are left
+     * empty by that)
+     */
+    private CellBlock[] createBlocks(int[][] rowsOf, int[][] columnsOf, int[] fixedTarget){
+        boolean[] isTarget = new boolean[numVerts];
+        for(int i=0; i<numVerts; i++)
+            if(fixedTarget[i] != -1)
+                isTarget[fixedTarget[i]] = true;
+        List<CellBlock> result = new ArrayList<CellBlock>();
+        for(int c=0; c<rowsOf.length; c++){
+            int count = 0;
+            for(int i : rowsOf[c])
+                if(fixedTarget[i] == -1)
                     count++;
-                }
-                else
-                    varNames[i][j] = -1;
+            if(count == 0)
+                continue;
+            int[] rows = rowsOf[c];
+            int[] columns = columnsOf[c];
+            if(count < rows.length){
+                rows = new int[count];
+                columns = new int[count];
+                int r = 0, t = 0;
+                for(int i : rowsOf[c])
+                    if(fixedTarget[i] == -1)
+                        rows[r++] = i;
+                for(int k : columnsOf[c])
+                    if(!isTarget[k])
+                        columns[t++] = k;
             }
+            result.add(new CellBlock(rows, columns, 0, rows.length));
         }
-        OutputWriter.append("p cnf "+(numVerts*numVerts -remVar)+" "+numClauses+"\n");
-        System.out.println("Instance has "+(numVerts*numVerts -remVar)+" variables (down from "
-                +(numVerts*numVerts)+") and "+numClauses+" clauses!");
-        //type 1 clauses
-        for(int i=0; i<numVerts; i++){
-            LinkedList<Literal> clause = new LinkedList<Literal>();
-            for(int j=0; j<numVerts; j++){
-                if(varIsFalse[i][j])
-                    continue;
-                clause.add(new Literal(varNames[i][j]));
-            }
-            if(clause.isEmpty()){
-                throw new Exception("Simplifying instance resulted in empty clause: \n"
-                        +"Vertex "+(i+1)+"'s degrees do not match the degrees of any vertex in graph 2\n"
-                        +"The graphs are certainly NOT isomorphic!");
+        return result.toArray(new CellBlock[result.size()]);
+    }
+
+    /* splits every block into parts of about PART_SIZE literals, according to an estimate of the number of
+     * literals the clauses of every row and column need
+     */
+    private CellBlock[] splitBlocks(CellBlock[] cellBlocks, Graph h1){
+        List<CellBlock> parts = new ArrayList<CellBlock>();
+        for(CellBlock block : cellBlocks){
+            long r = block.rows.length;
+            long columnSize = (options.getAMO_Encoding() == AMO_Encoding.PAIRWISE) ? r*(r-1) : 6*r;
+            long size = 0;
+            int from = 0;
+            for(int p=0; p<block.rows.length; p++){
+                int i = block.rows[p];
+                long neighbourTargets = 0;
+                for(int j : h1.getNeighbours(i))
+                    neighbourTargets += mapping.getTargets(j).length;
+                size += columnSize + mapping.getTargets(i).length * (1+neighbourTargets);
+                if(size >= PART_SIZE || p == block.rows.length-1){
+                    parts.add(new CellBlock(block.rows, block.columns, from, p+1));
+                    from = p+1;
+                    size = 0;
+                }
             }
-            //sat.addClause(clause);
-            OutputWriter.append(SAT_Instance.clauseToString(clause));
         }
-        //type 2 clauses
-        for(int j=0; j<numVerts; j++){
-            for(int k=0; k<numVerts; k++){
-                if(varIsFalse[j][k])
-                    continue;
-                for(int i=0; i<j; i++){
-                    //for type two, we create clauses in which every literal is negated
-                    //thus, if one of the literals is always false, the clause is always true and
-                    //we don't add it (if simplifying the instance is requested)
-                    if(varIsFalse[i][k])
-                        continue;
-                    //sat.addClause(createNegatedBinaryClause(i,k,j,k));
-                    OutputWriter.append(SAT_Instance.clauseToString(createNegatedBinaryClause(i,k,j,k)));
+        return parts.toArray(new CellBlock[parts.size()]);
+    }
+
+    /* generates the clauses of all blocks into counting sinks, and stores their numbers of clauses and
+     * auxiliary variables in the blocks
+     */
+    private void countClauses(final Graph h1, final Graph h2, ExecutorService executor) throws Exception{
+        List<Future<String>> futures = new ArrayList<Future<String>>();
+        for(final CellBlock block : blocks){
+            Callable<String> task = new Callable<String>(){
+                public String call() throws Exception{
+                    ClauseSink counter = new ClauseSink(0);
+                    generateClauses(block, h1, h2, counter);
+                    block.numAux = counter.getNumVars();
+                    return null;
                 }
-            }
+            };
+            if(executor == null)
+                task.call();
+            else
+                futures.add(executor.submit(task));
         }
-        //type 3 clauses
-        for(int j=0; j<numVerts; j++){
-            for(int i=0; i<j; i++){
-                if(!g1.containsEdge(i, j))
-                    continue;
-                for(int k=0; k<numVerts; k++){
-                    if(varIsFalse[i][k])
-                        continue;
-                    for(int l=0; l<numVerts; l++){
-                        //for type three, we create clauses in which every literal is negated
-                        //thus, if one of the literals is always false, the clause is always true and
-                        //we don't add it (if simplifying the instance is requested)
-                        if(varIsFalse[j][l] || k==l || g2.containsEdge(k, l))
-                            continue;
+        for(Future<String> future : futures)
+            getResult(future);
+    }
 
-                        //sat.addClause(createNegatedBinaryClause(i,k,j,l));
-                        OutputWriter.append(SAT_Instance.clauseToString(createNegatedBinaryClause(i,k,j,l)));
+    /* generates the clauses of all blocks and writes them to <out> in the order of the blocks
+     * with an executor, blocks are generated in parallel, but only a limited number of blocks ahead of the
+     * one that is written next, so that the clauses waiting to be written don't fill up the memory
+     */
+    private void writeClauses(final Graph h1, final Graph h2, ExecutorService executor, OutputWriter out)
+            throws Exception{
+        if(executor == null){
+            for(CellBlock block : blocks){
+                ClauseSink sink = new ClauseSink(block.auxBase, out);
+                generateClauses(block, h1, h2, sink);
+                sink.flush();
+            }
+            return;
+        }
+        int window = 2*options.getThreads();
+        List<Future<String>> futures = new ArrayList<Future<String>>();
+        int submitted = 0;
+        for(int b=0; b<blocks.length; b++){
+            while(submitted < blocks.length && submitted < b+window){
+                final CellBlock block = blocks[submitted++];
+                futures.add(executor.submit(new Callable<String>(){
+                    public String call() throws Exception{
+                        ClauseSink sink = new ClauseSink(block.auxBase, null);
+                        generateClauses(block, h1, h2, sink);
+                        return sink.getText();
                     }
-                }
+                }));
             }
+            out.append(getResult(futures.get(b)));
+            futures.set(b, null);
         }
-        System.out.println("Convertions took "+(System.currentTimeMillis()-time)+" ms.");
-        //System.out.println("TOTAL TIME: "+(System.currentTimeMillis()-startTime)+" ms.");
-        return varNames;
-    }*/
+    }
 
-    /* convenience method to easily create a clause (~x_{a,b} OR ~x_{c,d})
-     * ("~" means NOT; a,b,c,d are indexes to x)
-     *
-     */
-    private static LinkedList<Literal> createNegatedBinaryClause(int a, int b, int c, int d){
-        LinkedList<Literal> clause = new LinkedList<Literal>();
-        Literal l = new Literal(varNames[a][b], Literal.NEGATED);
-        clause.add(l);
-        l = new Literal(varNames[c][d], Literal.NEGATED);
-        clause.add(l);
-        return clause;
+    private static String getResult(Future<String> future) throws Exception{
+        try{
+            return future.get();
+        }catch(ExecutionException e){
+            if(e.getCause() instanceof Exception)
+                throw (Exception)e.getCause();
+            throw e;
+        }
     }
 
-    private static int countClauses(boolean simplify, int remVar, Graph g1, Graph g2){
-        if(!simplify)
-            remVar = 0;
-        //type 1 clauses
-        int clausecounter=numVerts;
-        int type1=numVerts, type2, type3;
-        System.out.println("Type 1 clauses: "+type1);
+    /* generates all clauses of the part <block> into <sink>, and stores the number of clauses of each type in it
+     * type 3 clauses are generated for the graphs h1 and h2, which are either the original graphs or their
+     * complements
+     */
+    private void generateClauses(CellBlock block, Graph h1, Graph h2, ClauseSink sink) throws Exception{
+        long before = sink.getNumClauses();
+        //type 1 clauses: every vertex in graph 1 is mapped to a vertex in graph 2
+        //(vertices with a fixed mapping aren't part of any block, and don't need any clauses)
+        int[] lits = new int[Math.max(block.rows.length, block.columns.length)];
+        for(int p=block.from; p<block.to; p++){
+            int i = block.rows[p];
+            int first = mapping.getFirstVariable(i);
+            int length = mapping.getTargets(i).length;
+            for(int t=0; t<length; t++)
+                lits[t] = first+t;
+            sink.addClause(lits, length);
+        }
+        block.numClauses[0] = sink.getNumClauses()-before;
+        before = sink.getNumClauses();
+        //type 2 clauses: no two vertices in graph 1 are mapped to the same vertex in graph 2
+        //(clauses containing a variable that is always false are always true, so we don't add them)
+        for(int p=block.from; p<block.to; p++){
+            int k = block.columns[p];
+            int length = 0;
+            for(int i : block.rows){
+                int x = mapping.getVariable(i, k);
+                if(x > 0)
+                    lits[length++] = x;
+            }
+            AtMostOne.encode(options.getAMO_Encoding(), lits, length, sink);
+        }
+        block.numClauses[1] = sink.getNumClauses()-before;
+        before = sink.getNumClauses();
+        //type 3 clauses: edges in graph 1 are mapped to edges in graph 2
+        if(edgeEncoding == EdgeEncoding.SUPPORT)
+            generateSupportClauses(block, h1, h2, sink);
+        else
+            generateConflictClauses(block, h1, h2, sink);
+        block.numClauses[2] = sink.getNumClauses()-before;
+    }
 
-        //type 2 clauses
-        for(int j=0; j<numVerts; j++){
-            for(int k=0; k<numVerts; k++){
-                if(simplify && varIsFalse[j][k])
+    /* type 3 clauses, conflict encoding: edges in graph 1 are not mapped to non-edges in graph 2
+     * (since both graphs have the same number of edges, this means that edges are mapped to edges)
+     * every edge is handled by the part of its smaller vertex
+     */
+    private void generateConflictClauses(CellBlock block, Graph g1, Graph g2, ClauseSink sink) throws Exception{
+        for(int p=block.from; p<block.to; p++){
+            int i = block.rows[p];
+            for(int j : g1.getNeighbours(i)){
+                if(j <= i)
                     continue;
-                for(int i=0; i<j; i++){
-                    //for type two, we create clauses in which every literal is negated
+                int[] targets1 = mapping.getTargets(i), targets2 = mapping.getTargets(j);
+                int first1 = mapping.getFirstVariable(i), first2 = mapping.getFirstVariable(j);
+                for(int a=0; a<targets1.length; a++){
+                    int k = targets1[a];
+                    //for type three, we create clauses in which every literal is negated
                     //thus, if one of the literals is always false, the clause is always true and
                     //we don't add it (if simplifying the instance is requested)
-                    if(simplify && varIsFalse[i][k])
-                        continue;
-                    clausecounter++;
+                    for(int b=0; b<targets2.length; b++){
+                        int l = targets2[b];
+                        if(k==l || g2.containsEdge(k, l))
+                            continue;
+                        sink.addNegatedBinary(first1+a, first2+b);
+                    }
                 }
             }
         }
+    }
 
-        type2 = clausecounter-type1;
-        System.out.println("Type 2 clauses: "+type2+" (down from  "+(numVerts*numVerts*(numVerts-1)/2)+")");
-        //type 3 clauses
-        for(int j=0; j<numVerts; j++){
-            for(int i=0; i<j; i++){
-                if(!g1.containsEdge(i, j))
+    /* type 3 clauses, support encoding: if i is mapped to k, then every neighbour j of i is mapped to one of
+     * the neighbours of k
+     * (if j has a fixed mapping, propagation has only left those k that are neighbours of j's fixed target)
+     */
+    private void generateSupportClauses(CellBlock block, Graph g1, Graph g2, ClauseSink sink) throws Exception{
+        int[] lits = new int[maxDegree+1];
+        for(int p=block.from; p<block.to; p++){
+            int i = block.rows[p];
+            for(int j : g1.getNeighbours(i)){
+                if(mapping.getFixedTarget(j) != -1)
                     continue;
-                for(int k=0; k<numVerts; k++){
-                    if(simplify && varIsFalse[i][k])
-                        continue;
-                    for(int l=0; l<numVerts; l++){
-                        if(k==l || g2.containsEdge(k, l))
-                            continue;
-                        //for type three, we create clauses in which every literal is negated
-                        //thus, if one of the literals is always false, the clause is always true and
-                        //we don't add it (if simplifying the instance is requested)
-                        if(simplify && varIsFalse[j][l])
-                            continue;
-                        clausecounter++;
+                int[] targets = mapping.getTargets(i);
+                int first = mapping.getFirstVariable(i);
+                for(int a=0; a<targets.length; a++){
+                    int length = 0;
+                    lits[length++] = -(first+a);
+                    for(int l : g2.getNeighbours(targets[a])){
+                        int x = mapping.getVariable(j, l);
+                        if(x > 0)
+                            lits[length++] = x;
                     }
+                    sink.addClause(lits, length);
                 }
             }
         }
-        type3 = clausecounter-type1-type2;
-        int edges = g1.getNumEdges();
-        System.out.println("Type 3 clauses: "+type3+" (down from "+(2 * edges * ((numVerts-1)*(numVerts)/2-edges))+")");
-        return clausecounter;
+    }
+
+    /* estimates the number of literals that the type 3 clauses need in either encoding, and returns the
+     * encoding that needs fewer of them
+     * With r variables per row and edge density d of graph 2, every edge of graph 1 needs about
+     *      2 * r*r*(1-d) literals in conflict encoding (r*r*(1-d) binary clauses)
+     *      2 * r*(1+r*d) literals in support encoding (2r clauses of length 1+r*d)
+     */
+    private EdgeEncoding chooseEdgeEncoding(Graph g2, int numVars){
+        double n = numVerts;
+        double r = numVars / n;
+        double d = (numVerts < 2) ? 0 : g2.getNumEdges() / (n*(n-1)/2);
+        double conflict = r*r*(1-d);
+        double support = r*(1+r*d);
+        return (support < conflict) ? EdgeEncoding.SUPPORT : EdgeEncoding.CONFLICT;
     }
 }
@@ -0,0 +1,17 @@
+
+package converters.gi_to_sat;
+
+/** Thrown when a GI converter finds out that the two graphs can't be isomorphic, so that there is no
+ *  need to create a sat instance at all.
+ *
+ * @author Frank Mugrauer
+ */
+public class NotIsomorphicException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    /* <reason> states why the graphs are not isomorphic
+     */
+    public NotIsomorphicException(String reason){
+        super(reason+"\nThe graphs are certainly NOT isomorphic!");
+    }
+}
@@ -0,0 +1,194 @@
+
+package converters.gi_to_sat;
+
+import model.graph.Graph;
+
+/** Fixes mappings that are forced by the variables that are left after simplifying a GI instance.
+ *  Since the mapping is a bijection, vertex i of graph 1 has to be mapped to vertex k of graph 2 if k is
+ *  the only vertex left that i can be mapped to, or if i is the only vertex left that can be mapped to k.
+ *  Once i is fixed to k, every other vertex j can only be mapped to vertices l != k with
+ *      (i,j) is an edge in graph 1  <=>  (k,l) is an edge in graph 2
+ *  which may in turn force further mappings. This is repeated until no more mappings are forced.
+ *  Vertices can only be mapped to vertices of the same cell (see ColourRefinement), so which of them are
+ *  still possible is stored per cell: alive[i][p] states whether i can still be mapped to the p-th vertex
+ *  of its cell in graph 2. Fixing i to k only looks at the neighbours of i and of k (and their cells).
+ *
+ * @author Frank Mugrauer
+ */
+class Propagation {
+    private final Graph g1, g2;
+    private final int numVerts;
+    private final int[] cell1, cell2;       //cell of every vertex of graph 1 / graph 2
+    private final int[][] rowsOf, columnsOf;  //vertices of graph 1 / graph 2 in every cell, ascending
+    private final int[] position;           //position[k] = index of k in columnsOf[cell2[k]]
+    private final boolean[][] alive;
+    private final int[] numTargets;         //number of vertices that i can still be mapped to
+    private final long[] targetSum;         //sum of these vertices (that is the vertex, if there is one left)
+    private final int[] numSources;         //number of vertices that can still be mapped to k
+    private final long[] sourceSum;
+    private final int[] fixedTarget;
+    private final int[] queue;              //rows i are queued as i, columns k as -(k+1)
+    private final boolean[] rowQueued, columnQueued;
+    private int queueHead, queueTail;
+    private int numFixed, numRemoved;
+
+    Propagation(Graph g1, Graph g2, int[] cell1, int[] cell2, int[][] rowsOf, int[][] columnsOf){
+        this.g1 = g1;
+        this.g2 = g2;
+        this.numVerts = g1.getNumVertices();
+        this.cell1 = cell1;
+        this.cell2 = cell2;
+        this.rowsOf = rowsOf;
+        this.columnsOf = columnsOf;
+        position = new int[numVerts];
+        for(int[] columns : columnsOf)
+            for(int p=0; p<columns.length; p++)
+                position[columns[p]] = p;
+        alive = new boolean[numVerts][];
+        numTargets = new int[numVerts];
+        targetSum = new long[numVerts];
+        numSources = new int[numVerts];
+        sourceSum = new long[numVerts];
+        fixedTarget = new int[numVerts];
+        for(int i=0; i<numVerts; i++){
+            int[] columns = columnsOf[cell1[i]];
+            alive[i] = new boolean[columns.length];
+            for(int p=0; p<columns.length; p++){
+                alive[i][p] = true;
+                targetSum[i] += columns[p];
+                numSources[columns[p]]++;
+                sourceSum[columns[p]] += i;
+            }
+            numTargets[i] = columns.length;
+            fixedTarget[i] = -1;
+        }
+        queue = new int[2*numVerts+1];
+        rowQueued = new boolean[numVerts];
+        columnQueued = new boolean[numVerts];
+    }
+
+    /* propagates forced mappings until no more mappings are forced, and returns the fixed mappings
+     * (fixedTarget[i] = k if i has to be mapped to k, -1 if i has not been fixed)
+     */
+    int[] run() throws Exception{
+        for(int i=0; i<numVerts; i++){
+            checkRow(i);
+            checkColumn(i);
+        }
+        while(queueHead != queueTail){
+            int entry = queue[queueHead];
+            queueHead = (queueHead+1) % queue.length;
+            if(entry >= 0){
+                int i = entry;
+                if(fixedTarget[i] == -1)
+                    fix(i, (int)targetSum[i]);
+            }else{
+                int k = -(entry+1);
+                int i = (int)sourceSum[k];
+                if(fixedTarget[i] == -1)
+                    fix(i, k);
+            }
+        }
+        return fixedTarget;
+    }
+
+    /* returns the vertices that i can still be mapped to in ascending order, or an empty array if the
+     * mapping of i has been fixed
+     */
+    int[] getTargets(int i){
+        if(fixedTarget[i] != -1)
+            return new int[0];
+        int[] columns = columnsOf[cell1[i]];
+        int[] targets = new int[numTargets[i]];
+        for(int p=0, t=0; p<columns.length; p++)
+            if(alive[i][p])
+                targets[t++] = columns[p];
+        return targets;
+    }
+
+    int getNumTargets(int i){
+        return numTargets[i];
+    }
+
+    int getNumFixed(){
+        return numFixed;
+    }
+
+    int getNumRemoved(){
+        return numRemoved;
+    }
+
+    private void fix(int i, int k) throws Exception{
+        fixedTarget[i] = k;
+        numFixed++;
+        int[] columns = columnsOf[cell1[i]];
+        for(int p=0; p<columns.length; p++)
+            if(alive[i][p] && columns[p] != k)
+                remove(i, p);
+        //neighbours of i can only be mapped to neighbours of k
+        for(int j : g1.getNeighbours(i)){
+            if(j == i || fixedTarget[j] != -1)
+                continue;
+            columns = columnsOf[cell1[j]];
+            for(int p=0; p<columns.length; p++){
+                int l = columns[p];
+                if(alive[j][p] && (l == k || !g2.containsEdge(k, l)))
+                    remove(j, p);
+            }
+        }
+        //no other vertex can be mapped to k, and non-neighbours of i can't be mapped to neighbours of k
+        removeSources(i, k, k);
+        for(int l : g2.getNeighbours(k))
+            if(l != k)
+                removeSources(i, k, l);
+    }
+
+    /* removes the variables of all vertices j that can't be mapped to l any more, once i is fixed to k
+     */
+    private void removeSources(int i, int k, int l) throws Exception{
+        int p = position[l];
+        for(int j : rowsOf[cell2[l]]){
+            if(j == i || fixedTarget[j] != -1 || !alive[j][p])
+                continue;
+            if(l == k || !g1.containsEdge(i, j))
+                remove(j, p);
+        }
+    }
+
+    private void remove(int i, int p) throws Exception{
+        int k = columnsOf[cell1[i]][p];
+        alive[i][p] = false;
+        numRemoved++;
+        numTargets[i]--;
+        targetSum[i] -= k;
+        numSources[k]--;
+        sourceSum[k] -= i;
+        checkRow(i);
+        checkColumn(k);
+    }
+
+    private void checkRow(int i) throws Exception{
+        if(numTargets[i] == 0)
+            throw new NotIsomorphicException("Propagating forced mappings left vertex "+(i+1)+" of graph 1 without any "
+                    +"vertex of graph 2 to be mapped to");
+        if(numTargets[i] == 1 && !rowQueued[i]){
+            rowQueued[i] = true;
+            enqueue(i);
+        }
+    }
+
+    private void checkColumn(int k) throws Exception{
+        if(numSources[k] == 0)
+            throw new NotIsomorphicException("Propagating forced mappings left vertex "+(k+1)+" of graph 2 without any "
+                    +"vertex of graph 1 to be mapped to it");
+        if(numSources[k] == 1 && !columnQueued[k]){
+            columnQueued[k] = true;
+            enqueue(-(k+1));
+        }
+    }
+
+    private void enqueue(int entry){
+        queue[queueTail] = entry;
+        queueTail = (queueTail+1) % queue.length;
+    }
+}
@@ -0,0 +1,177 @@
+
+package converters.gi_to_sat;
+
+import io.OutputWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+
+/** The mapping between the variables of a GI instance created by GI_to_SAT and pairs of vertices, e.g.
+ *      getVariable(i, k) = x
+ *  means that if the sat solver determines variable x to be true, then vertex i+1 in graph 1 should be
+ *  mapped to vertex k+1 in graph 2
+ *  if getVariable(i, k) = NONE (-1) this means that the converter has determined that vertex i+1 cannot be
+ *  mapped to vertex k+1, and thus the variable is omitted
+ *  if getVariable(i, k) = FIXED (0) this means that the converter has determined that vertex i+1 has to be
+ *  mapped to vertex k+1 (see Propagation), and thus the variable is omitted aswell
+ *
+ *  Only the variables that exist are stored: every vertex i of graph 1 has an ascending array of the
+ *  vertices it may be mapped to (its targets), whose variables are numbered consecutively starting with
+ *  getFirstVariable(i). Targets always lie in the block of i (see CellBlock), and a vertex k of graph 2 has a
+ *  fixed position within its block, so looking up a variable in either direction takes constant time.
+ *
+ *  The mapping can be written as text, one line "x i k" per variable (with 1-based vertices), or in a binary
+ *  format consisting of big-endian 32 bit integers:
+ *      the bytes 'G' 'I' 'V' 'M', the number of vertices n and the number of variables
+ *      for every vertex i = 1..n of graph 1: its fixed target (0 if it has none), its first variable,
+ *      its number of targets t and its t targets
+ *
+ * @author Frank Mugrauer
+ */
+public class VariableMapping {
+    public static final int FIXED = 0;
+    public static final int NONE = -1;
+    private static final int CHUNK_SIZE = 1 << 16;
+    private final int numVerts;
+    private final int numVars;
+    private final int[] fixedTarget;    //fixedTarget[i] = vertex in graph 2 that i has to be mapped to, or -1
+    private final int[][] targets;      //rows of the same cell may share their targets array
+    private final int[] firstVar;
+    private final int[] rowBlock;       //block of every vertex of graph 1 / graph 2, or -1
+    private final int[] columnBlock;
+    private final int[] columnPosition; //position of every vertex of graph 2 in the columns of its block
+    private final int[][] slot;         //slot[i][columnPosition[k]] = index of k in targets[i], or -1
+                                        //(null if i may be mapped to all columns of its block)
+    private final int[] varRow;         //varRow[x] = vertex of graph 1 that variable x belongs to
+
+    /* numbers the variables block by block, and row by row within every block
+     * the targets of every row need to be ascending and lie in the columns of its block
+     */
+    VariableMapping(int numVerts, int[] fixedTarget, CellBlock[] blocks, int[][] targets) throws Exception{
+        this.numVerts = numVerts;
+        this.fixedTarget = fixedTarget;
+        this.targets = targets;
+        firstVar = new int[numVerts];
+        rowBlock = new int[numVerts];
+        columnBlock = new int[numVerts];
+        columnPosition = new int[numVerts];
+        slot = new int[numVerts][];
+        for(int v=0; v<numVerts; v++){
+            rowBlock[v] = -1;
+            columnBlock[v] = -1;
+        }
+        long count = 1;
+        for(int b=0; b<blocks.length; b++){
+            for(int p=0; p<blocks[b].columns.length; p++){
+                columnBlock[blocks[b].columns[p]] = b;
+                columnPosition[blocks[b].columns[p]] = p;
+            }
+            for(int i : blocks[b].rows){
+                if(targets[i].length == 0)
+                    throw new NotIsomorphicException("Simplifying instance resulted in empty clause: \n"
+                            +"Vertex "+(i+1)+" cannot be mapped to any vertex in graph 2");
+                rowBlock[i] = b;
+                firstVar[i] = (int)count;
+                count += targets[i].length;
+                if(targets[i].length < blocks[b].columns.length){
+                    slot[i] = new int[blocks[b].columns.length];
+                    for(int p=0; p<slot[i].length; p++)
+                        slot[i][p] = -1;
+                    for(int t=0; t<targets[i].length; t++)
+                        slot[i][columnPosition[targets[i][t]]] = t;
+                }
+            }
+        }
+        if(count > Integer.MAX_VALUE)
+            throw new Exception("Instance has too many variables: "+(count-1));
+        numVars = (int)(count-1);
+        varRow = new int[numVars+1];
+        for(int i=0; i<numVerts; i++)
+            for(int t=0; t<targets[i].length; t++)
+                varRow[firstVar[i]+t] = i;
+    }
+
+    public int getNumVertices(){
+        return numVerts;
+    }
+
+    public int getNumVariables(){
+        return numVars;
+    }
+
+    /* returns the variable stating that vertex i of graph 1 is mapped to vertex k of graph 2, or FIXED
+     * or NONE
+     */
+    public int getVariable(int i, int k){
+        if(fixedTarget[i] != -1)
+            return (fixedTarget[i] == k) ? FIXED : NONE;
+        if(rowBlock[i] == -1 || columnBlock[k] != rowBlock[i])
+            return NONE;
+        int t = (slot[i] == null) ? columnPosition[k] : slot[i][columnPosition[k]];
+        return (t == -1) ? NONE : firstVar[i]+t;
+    }
+
+    /* returns the vertex of graph 1 / graph 2 that variable x belongs to
+     */
+    public int getVertex1(int x){
+        return varRow[x];
+    }
+
+    public int getVertex2(int x){
+        int i = varRow[x];
+        return targets[i][x-firstVar[i]];
+    }
+
+    /* returns the vertex of graph 2 that i has to be mapped to, or -1
+     */
+    public int getFixedTarget(int i){
+        return fixedTarget[i];
+    }
+
+    /* returns the vertices of graph 2 that i may be mapped to (empty if i has a fixed target); the array
+     * must not be changed
+     */
+    public int[] getTargets(int i){
+        return targets[i];
+    }
+
+    public int getFirstVariable(int i){
+        return firstVar[i];
+    }
+
+    /* writes the mapping as text, one line "x i k" per variable, and "0 i k" for fixed targets
+     */
+    public void writeTo(OutputWriter out) throws Exception{
+        StringBuilder buffer = new StringBuilder(CHUNK_SIZE + 64);
+        for(int i=0; i<numVerts; i++){
+            if(fixedTarget[i] != -1)
+                buffer.append(FIXED).append(' ').append(i+1).append(' ').append(fixedTarget[i]+1).append('\n');
+            for(int t=0; t<targets[i].length; t++){
+                buffer.append(firstVar[i]+t).append(' ').append(i+1).append(' ').append(targets[i][t]+1).append('\n');
+                if(buffer.length() >= CHUNK_SIZE){
+                    out.append(buffer.toString());
+                    buffer.setLength(0);
+                }
+            }
+        }
+        out.append(buffer.toString());
+    }
+
+    /* returns the mapping in the binary format
+     */
+    public byte[] toBinary() throws Exception{
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(4*(3*numVerts+numVars+3));
+        DataOutputStream data = new DataOutputStream(bytes);
+        data.writeBytes("GIVM");
+        data.writeInt(numVerts);
+        data.writeInt(numVars);
+        for(int i=0; i<numVerts; i++){
+            data.writeInt(fixedTarget[i]+1);
+            data.writeInt(firstVar[i]);
+            data.writeInt(targets[i].length);
+            for(int k : targets[i])
+                data.writeInt(k+1);
+        }
+        data.flush();
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,15 @@
+
+package converters.gi_to_sat;
+
+/** Represents the vertex invariants that GI_to_SAT can use to rule out mappings before colour refinement
+ *  (see VertexInvariants); a vertex can only be mapped to a vertex with the same value
+ *  - TRIANGLES: the number of triangles that contain the vertex
+ *  - FOUR_CYCLES: the number of cycles of length 4 that contain the vertex
+ *  - DISTANCES: the number of vertices at distance 1, 2, 3, ... from the vertex (stored as a hash value of
+ *      these numbers, so vertices with different values certainly have different distance histograms)
+ *
+ * @author Frank Mugrauer
+ */
+public enum VertexInvariant {
+    TRIANGLES,FOUR_CYCLES,DISTANCES;
+}
@@ -0,0 +1,183 @@
+
+package converters.gi_to_sat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import model.graph.Graph;
+
+/** Computes vertex invariants (see VertexInvariant) of a graph. The adjacency matrix is stored as one bitset
+ *  per vertex (without self-loops), so that common neighbours are counted with AND and popcount:
+ *  - triangles of v: every edge (v,u) is part of |N(v) AND N(u)| triangles, every triangle is counted twice
+ *  - four cycles of v: a cycle v-a-w-b-v is determined by the opposite vertex w and the pair {a,b} of common
+ *      neighbours of v and w, so v lies on the sum over w of C(|N(v) AND N(w)|, 2) four cycles. Only vertices
+ *      w in the OR of the neighbourhoods of v's neighbours have common neighbours with v.
+ *  - distances of v: breadth first search from v on bitsets, where the next level is the OR of the
+ *      neighbourhoods of the vertices in the current level, AND NOT the vertices that have been visited.
+ *      The sizes of the levels are hashed into one value.
+ *  Every vertex is computed on its own, so the vertices are split into ranges that are computed in parallel
+ *  if an executor is given.
+ *
+ * @author Frank Mugrauer
+ */
+class VertexInvariants {
+    private static final int TASKS_PER_THREAD = 4;
+    private final Graph g;
+    private final int numVerts;
+    private final int numWords;
+    private final long[][] adjacency;   //adjacency[v] = bitset of the neighbours of v
+    private final ExecutorService executor;
+    private final int numTasks;
+
+    /* <executor> may be null, in which case everything is computed in the calling thread
+     */
+    VertexInvariants(Graph g, ExecutorService executor, int threads){
+        this.g = g;
+        this.numVerts = g.getNumVertices();
+        this.numWords = (numVerts+63) >>> 6;
+        this.executor = executor;
+        this.numTasks = (executor == null) ? 1 : TASKS_PER_THREAD*threads;
+        adjacency = new long[numVerts][numWords];
+        for(int v=0; v<numVerts; v++)
+            for(int u : g.getNeighbours(v))
+                if(u != v)
+                    adjacency[v][u >>> 6] |= 1L << u;
+    }
+
+    /* returns the value of <invariant> for every vertex
+     */
+    long[] compute(final VertexInvariant invariant) throws Exception{
+        final long[] values = new long[numVerts];
+        List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+        for(int t=0; t<numTasks; t++){
+            final int from = (int)((long)numVerts*t/numTasks);
+            final int to = (int)((long)numVerts*(t+1)/numTasks);
+            tasks.add(new Callable<Object>(){
+                public Object call(){
+                    long[][] scratch = new long[3][numWords];
+                    for(int v=from; v<to; v++)
+                        values[v] = compute(invariant, v, scratch);
+                    return null;
+                }
+            });
+        }
+        if(executor == null){
+            for(Callable<Object> task : tasks)
+                task.call();
+        }else{
+            for(Future<Object> future : executor.invokeAll(tasks)){
+                try{
+                    future.get();
+                }catch(ExecutionException e){
+                    if(e.getCause() instanceof Exception)
+                        throw (Exception)e.getCause();
+                    throw e;
+                }
+            }
+        }
+        return values;
+    }
+
+    /* <scratch> are three bitsets of numWords words that may be used as temporary storage
+     */
+    private long compute(VertexInvariant invariant, int v, long[][] scratch){
+        switch(invariant){
+            case TRIANGLES:
+                return triangles(v);
+            case FOUR_CYCLES:
+                return fourCycles(v, scratch[0]);
+            case DISTANCES:
+                return distances(v, scratch[0], scratch[1], scratch[2]);
+        }
+        return 0;
+    }
+
+    private long triangles(int v){
+        long count = 0;
+        for(int u : g.getNeighbours(v))
+            if(u != v)
+                count += commonNeighbours(v, u);
+        return count/2;
+    }
+
+    private long fourCycles(int v, long[] reached){
+        for(int w=0; w<numWords; w++)
+            reached[w] = 0;
+        for(int u : g.getNeighbours(v)){
+            if(u == v)
+                continue;
+            long[] row = adjacency[u];
+            for(int w=0; w<numWords; w++)
+                reached[w] |= row[w];
+        }
+        reached[v >>> 6] &= ~(1L << v);
+        long count = 0;
+        for(int w=0; w<numWords; w++){
+            long bits = reached[w];
+            while(bits != 0){
+                int u = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits-1;
+                long common = commonNeighbours(v, u);
+                count += common*(common-1)/2;
+            }
+        }
+        return count;
+    }
+
+    private long distances(int v, long[] visited, long[] level, long[] next){
+        for(int w=0; w<numWords; w++){
+            visited[w] = 0;
+            level[w] = 0;
+        }
+        visited[v >>> 6] |= 1L << v;
+        level[v >>> 6] |= 1L << v;
+        long hash = 1;
+        while(true){
+            for(int w=0; w<numWords; w++)
+                next[w] = 0;
+            for(int w=0; w<numWords; w++){
+                long bits = level[w];
+                while(bits != 0){
+                    long[] row = adjacency[(w << 6) + Long.numberOfTrailingZeros(bits)];
+                    bits &= bits-1;
+                    for(int x=0; x<numWords; x++)
+                        next[x] |= row[x];
+                }
+            }
+            int size = 0;
+            for(int w=0; w<numWords; w++){
+                next[w] &= ~visited[w];
+                visited[w] |= next[w];
+                size += Long.bitCount(next[w]);
+            }
+            if(size == 0)
+                return hash;
+            hash = mix(hash*31 + size);
+            long[] swap = level;
+            level = next;
+            next = swap;
+        }
+    }
+
+    /* scrambles the bits of <x> (finalizer of MurmurHash3)
+     */
+    private static long mix(long x){
+        x ^= x >>> 33;
+        x *= 0xff51afd7ed558ccdL;
+        x ^= x >>> 33;
+        x *= 0xc4ceb9fe1a85ec53L;
+        x ^= x >>> 33;
+        return x;
+    }
+
+    private long commonNeighbours(int v, int u){
+        long[] a = adjacency[v], b = adjacency[u];
+        long count = 0;
+        for(int w=0; w<numWords; w++)
+            count += Long.bitCount(a[w] & b[w]);
+        return count;
+    }
+}
@@ -0,0 +1,65 @@
+
+package converters.labs_to_pbs;
+
+import model.pseudoBoolean.ConstraintStore;
+import model.pseudoBoolean.SummandSource;
+
+/** Generates the boolean summands of the LABS energy from the combined products of LABS_to_PBS.expandEnergy,
+ *  one part per product, so that only the products need to be kept in memory, rather than the 2 or 8 summands
+ *  of every product.
+ *  The summands are the ones of LABS_to_PBS.transformToBoolean, with their signs reversed (so that the
+ *  constraint uses a greaterequal Operator), i.e. a product c * (s_1 ... s_m) becomes the summands -2c times
+ *  every conjunction of its variables in which an even number of literals is negated.
+ *
+ * @author Frank Mugrauer
+ */
+class EnergySummands implements SummandSource {
+    private static final boolean[][] NEGATIONS2 = {{true,true},{false,false}};
+    private static final boolean[][] NEGATIONS4 = {{true,true,true,true},{false,false,false,false},
+                                                   {false,false,true,true},{false,true,false,true},
+                                                   {false,true,true,false},{true,false,false,true},
+                                                   {true,false,true,false},{true,true,false,false}};
+    private final LongIntMap products;
+    private final int numSummands;
+
+    /* <products> must not be changed afterwards
+     */
+    EnergySummands(LongIntMap products){
+        this.products = products;
+        int count = 0;
+        for(int p=0; p<products.size(); p++)
+            if(products.getValue(p) != 0)
+                count += isPair(products.getKey(p)) ? NEGATIONS2.length : NEGATIONS4.length;
+        this.numSummands = count;
+    }
+
+    @Override
+    public int getNumParts(){
+        return products.size();
+    }
+
+    @Override
+    public int countSummands(){
+        return numSummands;
+    }
+
+    @Override
+    public void addPart(int part, ConstraintStore store){
+        int multiplier = products.getValue(part);
+        if(multiplier == 0)     //products of skew-symmetric sequences may cancel out
+            return;
+        long key = products.getKey(part);
+        int weight = -2*multiplier;
+        for(boolean[] negations : isPair(key) ? NEGATIONS2 : NEGATIONS4){
+            store.addSummand(weight);
+            for(int i=0; i<negations.length; i++)
+                store.addFactor((int)((key >>> (16*i)) & 0xFFFF), negations[i]);
+        }
+    }
+
+    /* returns whether the product packed into <key> (see LABS_to_PBS.pack) has two variables, rather than four
+     */
+    private static boolean isPair(long key){
+        return (key >>> 32) == 0;
+    }
+}
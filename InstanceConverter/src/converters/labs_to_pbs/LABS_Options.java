@@ -0,0 +1,41 @@
+package converters.labs_to_pbs;
+
+/** Options for the conversion of a LABS (Low Autocorrelation Binary Sequence) problem into PBS problems
+ *  (see LABS_to_PBS and LABS_to_PBS_simple, and LABS_Symmetries for the encodings).
+ *
+ * @author Frank Mugrauer
+ */
+public class LABS_Options {
+    private boolean breakSymmetries;
+    private boolean skewSymmetric;
+
+    /* creates the default options: symmetries are not broken, all sequences are encoded
+     */
+    public LABS_Options(){
+        this.breakSymmetries = false;
+        this.skewSymmetric = false;
+    }
+
+    /* if set, the instances contain constraints that exclude all but (at least) one sequence of every class
+     * of sequences with the same autocorrelations (complemented, reversed or alternatingly negated sequences)
+     */
+    public boolean isBreakSymmetries() {
+        return breakSymmetries;
+    }
+
+    public void setBreakSymmetries(boolean breakSymmetries) {
+        this.breakSymmetries = breakSymmetries;
+    }
+
+    /* if set (only for an odd number of bits), only skew-symmetric sequences are encoded, which only need
+     * half of the variables. Instances that are unsatisfiable with this option may still be satisfiable by a
+     * sequence that is not skew-symmetric.
+     */
+    public boolean isSkewSymmetric() {
+        return skewSymmetric;
+    }
+
+    public void setSkewSymmetric(boolean skewSymmetric) {
+        this.skewSymmetric = skewSymmetric;
+    }
+}
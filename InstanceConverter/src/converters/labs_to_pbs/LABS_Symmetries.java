@@ -0,0 +1,86 @@
+
+package converters.labs_to_pbs;
+
+import java.util.LinkedList;
+import model.basic.Literal;
+import model.pseudoBoolean.Constraint;
+import model.pseudoBoolean.Operator;
+import model.pseudoBoolean.Summand;
+
+/** Maps the bits s_1..s_n (in {-1,1}) of a LABS sequence to the variables of the PBS instances, and creates
+ *  the symmetry breaking constraints (see LABS_Options). Variable x is true if its bit is 1.
+ *
+ *  The autocorrelations C_k = sum over i=1..n-k of s_i s_(i+k) stay the same (up to their sign) if the
+ *  sequence is complemented (s_i -> -s_i), reversed (s_i -> s_(n+1-i)) or alternatingly negated
+ *  (s_i -> (-1)^(i-1) s_i). Every sequence can be complemented so that s_1 = 1, and then alternatingly
+ *  negated so that s_2 = 1, so both bits are fixed. Of the sequences with s_1 = s_2 = 1 that the symmetries
+ *  map onto each other, only s and the reversal t of s (complemented and negated to t_1 = t_2 = 1) are left,
+ *  and t_3 = s_n s_(n-2). Thus one of them satisfies
+ *      NOT (s_3 = -1 AND s_n = s_(n-2))
+ *  which is added for n >= 6 (so that the bits are distinct).
+ *
+ *  A sequence of odd length n = 2m-1 is skew-symmetric if s_(m+l) = (-1)^l s_(m-l) for l = 1..m-1. Then only
+ *  s_1..s_m are variables, and the other bits are replaced by (negated) copies of them. Complementing and
+ *  alternatingly negating keep a sequence skew-symmetric, so s_1 and s_2 can still be fixed; the reversal
+ *  constraint always holds for skew-symmetric sequences, and is omitted.
+ *
+ * @author Frank Mugrauer
+ */
+class LABS_Symmetries {
+    private final int numberOfBits;
+    private final boolean breakSymmetries;
+    private final boolean skewSymmetric;
+    private final int numVariables;
+
+    /* skew symmetry is ignored for an even number of bits
+     */
+    LABS_Symmetries(int numberOfBits, LABS_Options options){
+        this.numberOfBits = numberOfBits;
+        this.breakSymmetries = options.isBreakSymmetries();
+        this.skewSymmetric = options.isSkewSymmetric() && numberOfBits%2 == 1;
+        this.numVariables = skewSymmetric ? (numberOfBits+1)/2 : numberOfBits;
+    }
+
+    int getNumVariables(){
+        return numVariables;
+    }
+
+    /* returns the (0-based) variable of the (0-based) bit
+     */
+    int variableOf(int bit){
+        if(!skewSymmetric || bit < numVariables)
+            return bit;
+        return 2*(numVariables-1)-bit;
+    }
+
+    /* returns 1 if the bit equals its variable, -1 if it equals its negation
+     */
+    int signOf(int bit){
+        if(!skewSymmetric || bit < numVariables)
+            return 1;
+        return ((bit-(numVariables-1))%2 == 0) ? 1 : -1;
+    }
+
+    /* returns the constraints that break the symmetries (none, if symmetries are not to be broken)
+     */
+    Constraint[] createConstraints(){
+        LinkedList<Constraint> constraints = new LinkedList<Constraint>();
+        if(breakSymmetries){
+            for(int bit=0; bit<2 && bit<numVariables; bit++)
+                constraints.add(new Constraint(1, Operator.GREATEREQUAL, new Summand[]{
+                        new Summand(1, new Literal[]{new Literal(bit+1)})}));
+            if(!skewSymmetric && numberOfBits >= 6){
+                //(s_3 = 1) OR (s_n != s_(n-2))
+                constraints.add(new Constraint(1, Operator.GREATEREQUAL, new Summand[]{
+                        new Summand(1, new Literal[]{new Literal(3)}),
+                        new Summand(1, new Literal[]{new Literal(numberOfBits, Literal.NEGATED)}),
+                        new Summand(1, new Literal[]{new Literal(numberOfBits-2, Literal.NEGATED)})}));
+                constraints.add(new Constraint(1, Operator.GREATEREQUAL, new Summand[]{
+                        new Summand(1, new Literal[]{new Literal(3)}),
+                        new Summand(1, new Literal[]{new Literal(numberOfBits)}),
+                        new Summand(1, new Literal[]{new Literal(numberOfBits-2)})}));
+            }
+        }
+        return constraints.toArray(new Constraint[constraints.size()]);
+    }
+}
@@ -1,18 +1,12 @@
 
 package converters.labs_to_pbs;
 
-import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Map.Entry;
-import model.basic.Literal;
-import model.basic.Variable;
-import model.basic.VariableNames;
 import model.labs.LABS_Instance;
 import model.pseudoBoolean.Constraint;
+import model.pseudoBoolean.ConstraintStore;
 import model.pseudoBoolean.Operator;
 import model.pseudoBoolean.PBS_Instance;
-import model.pseudoBoolean.Summand;
+import model.pseudoBoolean.SummandSource;
 
 /** Converts a problem specification for the LABS (Low Autocorrelation Binary Sequence) problem into
  *  a problem specification for the PBS (Pseudo Boolean Satisfaction) problem
@@ -22,250 +16,144 @@ import model.pseudoBoolean.Summand;
  */
 public class LABS_to_PBS {
     private static final Operator op = Operator.GREATEREQUAL;
-    private static int targetModifier;
-    private static int numberOfBits;
+    private final LABS_Options options;
+    private int targetModifier;
+    private int numberOfBits;
+    private LABS_Symmetries symmetries;
 
-    public static PBS_Instance[] convert(LABS_Instance labs){
+    public LABS_to_PBS(){
+        this(new LABS_Options());
+    }
+
+    public LABS_to_PBS(LABS_Options options){
+        this.options = options;
+    }
+
+    public PBS_Instance[] convert(LABS_Instance labs){
         targetModifier = 0;
         numberOfBits = labs.getNumberOfBits();
+        symmetries = new LABS_Symmetries(numberOfBits, options);
         //transformation
-        Term t = createEquation();
-        t = multiplySquares(t);
-        t = trim(t);
-        //System.out.println("targetModifier: "+targetModifier+", numberOfTerms: "+t.size());
-        List<Summand> summands = transformToBoolean(t);
-        summands = reverseSummandSigns(summands);
+        LongIntMap products = expandEnergy();
+        //System.out.println("targetModifier: "+targetModifier+", numberOfTerms: "+products.size());
+        SummandSource summands = transformToBoolean(products);
 
         //calculate targets and complete constraints
+        //all instances share the same summands, which are generated from the products whenever they are
+        //written (see SummandRenderer for when they are rendered only once)
+        ConstraintStore store = new ConstraintStore();
+        Constraint[] symmetryConstraints = symmetries.createConstraints();
+        int[] symmetryFirst = new int[symmetryConstraints.length];
+        for(int i=0; i<symmetryConstraints.length; i++)
+            symmetryFirst[i] = store.addSummands(symmetryConstraints[i].getSummands());
         PBS_Instance[] pbsInstances= new PBS_Instance[labs.getTargets().length];
         int count = 0;
-        Constraint c;
         for(int target : labs.getTargets()){
-            Summand[] smds = new Summand[summands.size()];
-            smds = summands.toArray(smds);
             int adjustedTarget = (-1 * target) + targetModifier;
-            c = new Constraint(adjustedTarget, Operator.GREATEREQUAL, smds);
+            int first = store.addConstraint(summands, adjustedTarget, Operator.GREATEREQUAL);
+            for(int i=0; i<symmetryConstraints.length; i++)
+                store.addConstraint(symmetryFirst[i], symmetryFirst[i]+symmetryConstraints[i].countSummands(),
+                        symmetryConstraints[i].getTarget(), symmetryConstraints[i].getOp());
             int p = numberOfBits;
             p = p * p * p * p;
-            pbsInstances[count] = new PBS_Instance(c, numberOfBits, p, p);
+            pbsInstances[count] = new PBS_Instance(store, first, store.getNumConstraints(),
+                    symmetries.getNumVariables(), p, p);
            count++;
         }
         return pbsInstances;
     }
 
-    /* creates an equation that represents the energy of the autocorrelation of a LABS problem
-     * The Term class does not contain any explicit operators; the resulting Term should be
-     *      interpreted as a sum of squares of sums of products of Atoms, e.g.:
-     *          a term that says
-     *          ( ((x1x2) (x3x4)) ((x2x3) (x5x3)) ((x1x5)) )
-     *          should be interpreted as
-     *          ( (x1x2 + x3x4)^2) + ((x2x3 + x5x3)^2) + ((x1x5)^2) )
+    /* expands the energy of the autocorrelation of a LABS problem
+     *      E = sum over k=1..n-1 of (C_k)^2,   C_k = sum over i=1..n-k of s_i s_(i+k)
      * (formula for the equations can be found here: http://www2.lirmm.fr/chocolib/prob/prob005/spec.php)
+     * into a sum of products of variables s_1..s_n in {-1,1}. Squaring C_k gives the products
+     *      s_i s_(i+k) s_j s_(j+k)   for all i, j
+     * which are 1 for i = j (summed up in the targetModifier field), and appear twice for i != j. Since
+     * s*s = 1, the product of i < j = i+k is s_i s_(j+k), all others have four distinct variables.
+     * Returns the coefficients of the products, like terms combined; the variables of a product are packed
+     * into the key by pack().
+     * The bits are replaced by their variables (see LABS_Symmetries), so for skew-symmetric sequences some
+     * products have fewer variables, or none at all.
      */
-    private static Term createEquation(){
-        Variable[] vars = new Variable[numberOfBits];
-        for(int i=0; i<vars.length; i++)
-            vars[i] = new Variable(VariableNames.newVarID());
-        Term equation = new Term();
-        for(int k=1; k<=numberOfBits; k++){
-            Term term = new Term();
-            for(int i=1; i<=(numberOfBits-k); i++){
-                Atom si = new Atom(false, vars[i-1]);
-                Atom sik = new Atom(false, vars[i+k-1]);
-
-                Term tmp = new Term();
-                tmp.addLast(new Term(si));
-                tmp.addLast(new Term(sik));
-
-                term.addLast(tmp);
-            }
-            if(!term.isEmpty())
-                equation.addLast(term);
-        }
-        return equation;
-    }
-
-    /* takes a term of depth 4, and transforms it into a term of depth 2 by squaring all elements:
-     *      Input Term should be interpreted as a sum of squares of sums of products of Atoms:
-     *          ( (x1x2 + x3x4)^2) + ((x2x3 + x5x3)^2) + ((x1x5)^2) +  ...
-     *      Output Term should be interpreted as a sum of products of Atoms:
-     *          (x1x2) + (2 x3x4x1x2) + (2 x4x2x1x6) + ...
-     * Note: This method should be called directly after createEquation()
-     *
-     */
-    private static Term multiplySquares(Term original){
-        Term res = new Term();
-        while(!original.isEmpty()){
-            Term source = original.removeFirst();
-            //source contains a variable number of smaller terms, each of which contains precisely 2 variables
-            List<Term> sourceNodes = source.getTerms();
-            //in this loop, we take a term out of source, then square it, and put the results in sink
-            //e.g. (x1 x2)   -> ((x1 x1) (2 x1 x2) (x2 x2))
-           for(int i=0; i<sourceNodes.size(); i++){
-                for(int j=i; j<sourceNodes.size(); j++){
-                    Term tmp = new Term();
-                    if(j>i)
-                        tmp.addLast(new Term(new Atom(2)));
-                    tmp.addAll(sourceNodes.get(i).getTerms());
-                    tmp.addAll(sourceNodes.get(j).getTerms());
-                    res.addLast(tmp);
+    private LongIntMap expandEnergy(){
+        //there are about n^3/3 products before combining them
+        LongIntMap products = new LongIntMap((int)Math.min((long)numberOfBits*numberOfBits*numberOfBits/3,
+                1 << 26));
+        int[] bits = new int[4];
+        int[] vars = new int[4];
+        for(int k=1; k<numberOfBits; k++){
+            targetModifier += numberOfBits-k;
+            for(int i=0; i+k<numberOfBits; i++){
+                for(int j=i+1; j+k<numberOfBits; j++){
+                    if(j == i+k){
+                        bits[0] = i;
+                        bits[1] = j+k;
+                        addProduct(products, bits, 2, vars, 2);
+                    }else{
+                        bits[0] = i;
+                        bits[1] = Math.min(i+k, j);
+                        bits[2] = Math.max(i+k, j);
+                        bits[3] = j+k;
+                        addProduct(products, bits, 4, vars, 2);
+                    }
                 }
             }
         }
-        return res;
+        return products;
     }
 
-    /* straightens out the terms by
-     *      - removing duplicate variables, e.g. (x1 x2 x1 x3) becomes (x2 x3), (x1 x1) becomes 1
-     *              (Note: x1 * x1 = 1, since all variables are in {-1,1})
-     *      - combining terms when possible, e.g. (2 x1 x2) + (2 x2 x1) becomes (4 x1 x2)
-     *      - removes constant parts from the term and sums them up in the static targetModifier field
-     *              e.g. a term (1 + (2 x1 x2) + 1 + (4 x1 x2 x3 x4) + 1) becomes ((2 x1 x2) + (4 x1 x2 x3 x4))
-     *              and the targetModifier becomes 3
-     * Note:    This method expects a Term of depth 2: a sum of products of Atoms
-     *              e.g. ((x1 x2) (2 x3 x1 x1 x2) (x2 x3 x1 x4))
-     *          This method needs to be called after multiplySquares()
+    /* adds <coefficient> times the product of the (ascending, distinct) bits[0..length-1] to <products>
+     * <vars> is used as scratch space
      */
-    private static Term trim(Term original){
-        //remove duplicate variables and, in the process, sort variables: e.g. (x2 x3 x1 x3) -> (x1 x2)
-        boolean[] containsvars = new boolean[numberOfBits];
-        Term res = new Term();
-        while(!original.isEmpty()){
-            for(int i=0; i<containsvars.length; i++)
-                        containsvars[i] = false;
-            Term source = original.removeFirst();
-            Term sink = new Term();
-            for(Term t : source.getTerms()){ //t is an Atom
-                if(!t.getA().isVariable())
-                    sink.addLast(t);
-                else{ //t is an Variable
-                    int varID = t.getA().getVariable().getID();
-                    if(containsvars[varID-1]) // duplicate variables cancel each other out
-                        containsvars[varID-1] = false; //(x1*x1) = (1*1) = (-1*-1) = 1
-                    else
-                        containsvars[varID-1] = true;
-                }
-            }
-            for(int i=0; i<containsvars.length; i++){
-                if(containsvars[i])
-                    sink.addLast(new Term(new Atom(false, new Variable(i+1))));
+    private void addProduct(LongIntMap products, int[] bits, int length, int[] vars, int coefficient){
+        int sign = 1;
+        int size = 0;
+        for(int i=0; i<length; i++){
+            sign *= symmetries.signOf(bits[i]);
+            int var = symmetries.variableOf(bits[i]);
+            int pos = size++;
+            while(pos > 0 && vars[pos-1] > var){
+                vars[pos] = vars[pos-1];
+                pos--;
             }
-            if(sink.isEmpty())
-                sink = new Term(new Atom(1));
-            res.addLast(sink);
+            vars[pos] = var;
         }
-
-        //combine Terms and remove constant terms
-        Term source = res;
-        HashMap<Term,Integer> hm= new HashMap<Term,Integer>();
-        while(!source.isEmpty()){
-            int i;
-            Term t = source.removeFirst();
-            if(t.isAtom()){ //this means the Term contains only "(1)"
-                targetModifier++;
-                continue;
-            }else if(!t.peekFirst().getA().isVariable())
-                i = t.removeFirst().getA().getInteger();
-            else
-                i = 1;
-            if(hm.containsKey(t)){
-                i = i + hm.remove(t);
-            }
-            hm.put(t, i);
-        }
-        res = new Term();
-        for(Entry<Term,Integer> entry : hm.entrySet()){
-            Term t = entry.getKey();
-            t.addFirst(new Term(new Atom(entry.getValue())));
-            res.addLast(t);
-        }
-        return res;
-    }
-
-    /* transforms the equations from arithmetic to boolean (i.e. variable domains are not {true, false} rather
-     * than {-1,1}
-     *  e.g. a Term (2 x1 x2) becomes (-2 + (4 x1 ~x2) + (4 ~x1 x2))
-     * The method then removes all constant parts it creates, and sums them up in the static targetModifier field
-     * This method needs to be called afer trim()
-     */
-    private static List<Summand> transformToBoolean(Term source){
-        LinkedList<Summand> summands= new LinkedList<Summand>();
-        while(!source.isEmpty()){
-            Term term = source.removeFirst();
-            if(term.peekFirst().getA().isVariable())//most terms have constant multipliers of 2, 4, etc, but some
-                term.addFirst(new Term(new Atom(1)));//might not have a constant multiplier, so we multiply with 1
-            int multiplier = term.removeFirst().getA().getInteger();
-            targetModifier = targetModifier - multiplier;
-
-            //create Summands
-            int weight = multiplier*2;
-            Variable[] vars = new Variable[term.size()];
-            int count=0;
-            for(Term t : term.getTerms()){
-                vars[count] = t.getA().getVariable();
-                count++;
-            }
-            Summand s;
-            Literal[] lits;
-            if(vars.length == 2){
-                final boolean[] neg1 = {true,false};
-                final boolean[] neg2 = {false,true};
-                lits = createLiteralArray(vars,neg1);
-                summands.add(new Summand(weight, lits));
-                lits = createLiteralArray(vars,neg2);
-                summands.add(new Summand(weight, lits));
-            }
-            else if(vars.length == 4){
-                final boolean[] neg1 = {true,true,true,true};
-                final boolean[] neg2 = {false,false,false,false};
-                final boolean[] neg3 = {false,false,true,true};
-                final boolean[] neg4 = {false,true,false,true};
-                final boolean[] neg5 = {false,true,true,false};
-                final boolean[] neg6 = {true,false,false,true};
-                final boolean[] neg7 = {true,false,true,false};
-                final boolean[] neg8 = {true,true,false,false};
-                lits = createLiteralArray(vars,neg1);
-                summands.add(new Summand(weight, lits));
-                lits = createLiteralArray(vars,neg2);
-                summands.add(new Summand(weight, lits));
-                lits = createLiteralArray(vars,neg3);
-                summands.add(new Summand(weight, lits));
-                lits = createLiteralArray(vars,neg4);
-                summands.add(new Summand(weight, lits));
-                lits = createLiteralArray(vars,neg5);
-                summands.add(new Summand(weight, lits));
-                lits = createLiteralArray(vars,neg6);
-                summands.add(new Summand(weight, lits));
-                lits = createLiteralArray(vars,neg7);
-                summands.add(new Summand(weight, lits));
-                lits = createLiteralArray(vars,neg8);
-                summands.add(new Summand(weight, lits));
-            }
+        //a variable occurring twice cancels out (s*s = 1)
+        int count = 0;
+        for(int i=0; i<size; i++){
+            if(count > 0 && vars[count-1] == vars[i])
+                count--;
             else
-                System.out.println("ERROR: A term ("+term.toString()+") has neither 2 nor 4 variables!");
+                vars[count++] = vars[i];
         }
-        return summands;
+        if(count == 0)
+            targetModifier += sign*coefficient;
+        else
+            products.add(pack(vars, count), sign*coefficient);
     }
 
-    /* creates an array of Literals from an array of variables and an array of negations
+    /* packs the ascending 0-based variable indices vars[0..length-1] into one long, 16 bits per variable
+     * (each stored as index+1, so that unused slots are 0; this limits numberOfBits to 65535)
      */
-    private static Literal[] createLiteralArray(Variable[] vars, boolean[] negations){
-        Literal[] lits = new Literal[vars.length];
-        for(int i=0; i<vars.length; i++)
-            lits[i] = new Literal(vars[i].getID(), negations[i]);
-        return lits;
+    private static long pack(int[] vars, int length){
+        long key = 0;
+        for(int i=length-1; i>=0; i--)
+            key = (key << 16) | (vars[i]+1);
+        return key;
     }
 
-    /* reverses the signs on all summands so that a greaterequal Operator can be used instead of a lesserequal
-     * when making constraints
-     * This method should be called after transformToBoolean()
+    /* transforms the products from arithmetic to boolean (i.e. variable domains are now {true, false} rather
+     * than {-1,1}, with s = 1 for true)
+     * A product of variables is 1 if an even number of them are -1, and -1 otherwise, so
+     *      c * (s_1 ... s_m) = -c + 2c * (sum of the conjunctions in which an even number of literals is negated)
+     *  e.g. a product (2 x1 x2) becomes (-2 + (4 x1 x2) + (4 ~x1 ~x2))
+     * The constant parts are summed up in the targetModifier field. The conjunctions are generated by the
+     * returned EnergySummands when they are needed, with their signs reversed so that a greaterequal Operator
+     * can be used instead of a lesserequal when making constraints.
      */
-    public static List<Summand> reverseSummandSigns(List<Summand> smds){
-        LinkedList<Summand> summands = new LinkedList<Summand>();
-        for(Summand s : smds){
-            s.flipSign();
-            summands.add(s);
-        }
-        return summands;
+    private SummandSource transformToBoolean(LongIntMap products){
+        for(int p=0; p<products.size(); p++)
+            targetModifier = targetModifier - products.getValue(p);
+        return new EnergySummands(products);
     }
 }
\ No newline at end of file
@@ -5,6 +5,7 @@ import java.util.LinkedList;
 import model.basic.Literal;
 import model.labs.LABS_Instance;
 import model.pseudoBoolean.Constraint;
+import model.pseudoBoolean.ConstraintStore;
 import model.pseudoBoolean.Operator;
 import model.pseudoBoolean.PBS_Instance;
 import model.pseudoBoolean.Summand;
@@ -18,12 +19,99 @@ import model.pseudoBoolean.Summand;
 public class LABS_to_PBS_simple {
 
     public static PBS_Instance[] convert(LABS_Instance l){
+        return convert(l, new LABS_Options());
+    }
+
+    /* The summands of the constraints only depend on the number of bits, so they are stored once in a
+     * ConstraintStore shared by the instances of all targets (which only differ in the right hand sides of
+     * their constraints). This also lets a SummandRenderer render them only once.
+     */
+    public static PBS_Instance[] convert(LABS_Instance l, LABS_Options options){
+        int numberOfBits = l.getNumberOfBits();
+        LABS_Symmetries symmetries = new LABS_Symmetries(numberOfBits, options);
+        ConstraintStore store = new ConstraintStore();
+        //for every distance i = 1..numberOfBits-1: the first summands of the constraints (C_i <= target) and
+        //(-C_i <= target) in the store and their number, the number of products in C_i, and the number of pairs
+        //of bits that differ in every sequence (a bit and a negated copy of it in a skew-symmetric sequence)
+        int[] first1 = new int[Math.max(numberOfBits-1, 0)];
+        int[] first2 = new int[first1.length];
+        int[] numSummands = new int[first1.length];
+        int[] numProducts = new int[first1.length];
+        int[] constDiff = new int[first1.length];
+        for(int i=1; i<=numberOfBits-1; i++){
+            numProducts[i-1] = numberOfBits-i;
+            Summand[] s1 = createSummands(symmetries, numberOfBits, i, constDiff);
+            Summand[] s2 = new Summand[s1.length];
+            for(int count=0; count<s1.length; count++)
+                s2[count] = new Summand(-1*s1[count].getWeight(), s1[count].getFactors());
+            numSummands[i-1] = s1.length;
+            first1[i-1] = store.addSummands(s1);
+            first2[i-1] = store.addSummands(s2);
+        }
+        Constraint[] symmetryConstraints = symmetries.createConstraints();
+        int[] symmetryFirst = new int[symmetryConstraints.length];
+        for(int c=0; c<symmetryConstraints.length; c++)
+            symmetryFirst[c] = store.addSummands(symmetryConstraints[c].getSummands());
+        //the summands of a constraint that never holds
+        int falseFirst = store.addSummands(new Summand[]{new Summand(1, new Literal[]{new Literal(1)})});
+        int product = numberOfBits * (numberOfBits-1);
         PBS_Instance[] res = new PBS_Instance[l.getTargets().length];
-        for(int i=0; i<res.length; i++)
-            res[i] = convert(l.getNumberOfBits(), l.getTargets()[i]);
+        for(int t=0; t<res.length; t++){
+            int target = l.getTargets()[t];
+            int first = store.getNumConstraints();
+            for(int i=1; i<=numberOfBits-1; i++){
+                int j = numProducts[i-1];
+                addConstraint(store, first1[i-1], numSummands[i-1], j-target-2*constDiff[i-1], falseFirst);
+                addConstraint(store, first2[i-1], numSummands[i-1], -1*(j+target)+2*constDiff[i-1], falseFirst);
+            }
+            for(int c=0; c<symmetryConstraints.length; c++)
+                store.addConstraint(symmetryFirst[c], symmetryFirst[c]+symmetryConstraints[c].countSummands(),
+                        symmetryConstraints[c].getTarget(), symmetryConstraints[c].getOp());
+            res[t] = new PBS_Instance(store, first, store.getNumConstraints(), symmetries.getNumVariables(),
+                    product, 4*product);
+        }
         return res;
     }
 
+    /* adds the constraint (summands first .. first+count-1 >= target)
+     * without summands the constraint is left out if it always holds, and replaced by (+1 x1 >= 2), which
+     * never holds, otherwise
+     */
+    private static void addConstraint(ConstraintStore store, int first, int count, int target, int falseFirst){
+        if(count > 0)
+            store.addConstraint(first, first+count, target, Operator.GREATEREQUAL);
+        else if(target > 0)
+            store.addConstraint(falseFirst, falseFirst+1, 2, Operator.GREATEREQUAL);
+    }
+
+    /* creates the summands that are true for every pair of bits at distance i that differ, each with weight 2
+     * pairs that differ in every sequence are counted in constDiff[i-1] instead
+     */
+    private static Summand[] createSummands(LABS_Symmetries symmetries, int numberOfBits, int i, int[] constDiff){
+        Literal[] lits;
+        LinkedList<Summand> smds = new LinkedList<Summand>();
+        for(int j=1; j<=numberOfBits-i; j++){
+            int u = symmetries.variableOf(j-1)+1;
+            int v = symmetries.variableOf(j+i-1)+1;
+            boolean equalSigns = symmetries.signOf(j-1) == symmetries.signOf(j+i-1);
+            if(u == v){
+                if(!equalSigns)
+                    constDiff[i-1]++;
+                continue;
+            }
+            //the bits differ if their variables differ (equal signs) or are the same (different signs)
+            lits = new Literal[2];
+            lits[0] = new Literal(u, equalSigns);
+            lits[1] = new Literal(v, false);
+            smds.add(new Summand(2,lits));
+            lits = new Literal[2];
+            lits[0] = new Literal(u, !equalSigns);
+            lits[1] = new Literal(v, true);
+            smds.add(new Summand(2,lits));
+        }
+        return smds.toArray(new Summand[smds.size()]);
+    }
+
     private static PBS_Instance convert_crap(int numberOfBits, int target){
         boolean simplify = true, evenBitNum=false;
         int simplifyShift = simplify ? 1 : 0;
@@ -127,40 +215,4 @@ public class LABS_to_PBS_simple {
         int product = numberOfBits * (numberOfBits-1);
         return new PBS_Instance(cs, numberOfBits, product, 4*product);
     }
-
-    private static PBS_Instance convert(int numberOfBits, int target){
-        Literal[] lits;
-        LinkedList<Summand> smds = new LinkedList<Summand>();
-        Summand[] s1,s2;
-        Constraint[] cs = new Constraint[(numberOfBits-1)*2];
-
-        for(int i=1; i<=numberOfBits-1; i++){
-            smds.clear();
-            int j;
-            for(j=1; j<=numberOfBits-i; j++){
-                lits = new Literal[2];
-                lits[0] = new Literal(j, true);
-                lits[1] = new Literal(j+i, false);
-                smds.add(new Summand(2,lits));
-                lits = new Literal[2];
-                lits[0] = new Literal(j, false);
-                lits[1] = new Literal(j+i, true);
-                smds.add(new Summand(2,lits));
-            }
-            j--; //j counts how often the previous for-loop has run, will be used at the end of the current loop
-            s1 = new Summand[smds.size()];
-            s2 = new Summand[smds.size()];
-            int count=0;
-            for(Summand s : smds){
-                s1[count] = s;
-                s2[count] = new Summand(-1*s.getWeight(), s.getFactors());
-                count++;
-            }
-
-            cs[(i-1)*2] = new Constraint(j-target,Operator.GREATEREQUAL,s1);
-            cs[(i-1)*2 +1] = new Constraint(-1*(j+target),Operator.GREATEREQUAL, s2);
-        }
-        int product = numberOfBits * (numberOfBits-1);
-        return new PBS_Instance(cs, numberOfBits, product, 4*product);
-    }
 }
@@ -0,0 +1,83 @@
+
+package converters.labs_to_pbs;
+
+import java.util.Arrays;
+
+/** Sums up int values per long key, without boxing: the entries are kept in two arrays in the order their
+ *  keys were first added, and an open addressing hash table (linear probing) stores entry index+1 per slot.
+ *  Used to combine like products while expanding the LABS energy, where the key holds the packed
+ *  variables of a product.
+ *
+ * @author Frank Mugrauer
+ */
+class LongIntMap {
+    private long[] keys;
+    private int[] values;
+    private int size;
+    private int[] table;    //entry index+1, 0 for empty slots
+
+    LongIntMap(int expectedSize){
+        int capacity = 16;
+        while(capacity < 2L*expectedSize && capacity < (1 << 30))
+            capacity <<= 1;
+        table = new int[capacity];
+        keys = new long[Math.max(expectedSize, 16)];
+        values = new int[keys.length];
+        size = 0;
+    }
+
+    /* adds <value> to the value of <key> (which is 0 for keys that haven't been added yet)
+     */
+    void add(long key, int value){
+        int mask = table.length-1;
+        int slot = hash(key) & mask;
+        while(table[slot] != 0){
+            int entry = table[slot]-1;
+            if(keys[entry] == key){
+                values[entry] += value;
+                return;
+            }
+            slot = (slot+1) & mask;
+        }
+        if(size == keys.length){
+            keys = Arrays.copyOf(keys, 2*size);
+            values = Arrays.copyOf(values, 2*size);
+        }
+        keys[size] = key;
+        values[size] = value;
+        size++;
+        table[slot] = size;
+        if(2L*size > table.length)
+            rehash();
+    }
+
+    int size(){
+        return size;
+    }
+
+    /* returns the key / value of the entry <index> (0..size()-1), in the order the keys were added
+     */
+    long getKey(int index){
+        return keys[index];
+    }
+
+    int getValue(int index){
+        return values[index];
+    }
+
+    private void rehash(){
+        table = new int[2*table.length];
+        int mask = table.length-1;
+        for(int entry=0; entry<size; entry++){
+            int slot = hash(keys[entry]) & mask;
+            while(table[slot] != 0)
+                slot = (slot+1) & mask;
+            table[slot] = entry+1;
+        }
+    }
+
+    private static int hash(long key){
+        key *= 0x9e3779b97f4a7c15L;
+        return (int)(key >>> 32) ^ (int)key;
+    }
+}
@@ -1,10 +1,11 @@
-
 package converters.sat_to_graph;
 
-import io.OutputWriter;
+import java.util.Arrays;
 import java.util.LinkedList;
 import model.basic.Literal;
+import model.graph.EdgeListBuilder;
 import model.graph.Graph;
+import model.sat.CNF_Reader;
 import model.sat.SAT_Instance;
 
 /**
@@ -12,60 +13,125 @@ import model.sat.SAT_Instance;
  * @author Frank Mugrauer
  */
 public class SAT_to_Graph {
+    //vertex colours of convertClauseVertices
+    public static final int LITERAL_COLOUR = 1;
+    public static final int CONNECTOR_COLOUR = 2;
+    public static final int CLAUSE_COLOUR = 3;
 
+    /* converts a sat instance into an uncoloured graph, in which the literals of every clause form a clique
+     */
     public static Graph convert(SAT_Instance s) throws Exception{
-        int numVars = s.getNumVars();
-        int numVerts = 3*numVars;
-        //verts 0..(numVars-1) = positive literals
-        //verts numVars+..(2*numVars-1) = negated literals
-        //verts 2*numVars..(3*numVars-1) = connection vertices, each connecting one positive literal to one negated one
-        boolean[][] mat = new boolean[numVerts][numVerts];
-        
-        //form connections from positive literals, via connection vertices, to negated literals
-        for(int i=0;i<numVars; i++){
-            mat[i][2*numVars+i] = true;
-            mat[numVars+i][2*numVars +i] = true;
-        }
         LinkedList<LinkedList<Literal>> clauses = s.getClauses();
+        long expectedEdges = 0;
+        for(LinkedList<Literal> clause : clauses)
+            expectedEdges += (long)clause.size()*(clause.size()-1)/2;
+        EdgeListBuilder edges = literalGraph(s.getNumVars(), expectedEdges);
+        int[] literals = new int[0];
         for(LinkedList<Literal> clause : clauses){
-            for(Literal l1 : clause){
-                int l1VertexNum = l1.getID()-1;
-                if(l1.isNegated())
-                    l1VertexNum += numVars;
-                for(Literal l2 : clause){
-                    int l2VertexNum = l2.getID()-1;
-                    if(l1.getID() == l2.getID())
-                        continue;
-                    if(l2.isNegated())
-                        l2VertexNum += numVars;
-                    mat[l1VertexNum][l2VertexNum] = true;
-                    mat[l2VertexNum][l1VertexNum] = true;
-                }
-            }
+            literals = toArray(clause, literals);
+            addClique(edges, s.getNumVars(), literals, clause.size());
         }
-        return Graph.fromAdjacencyMatrix(mat);
+        return edges.build();
+    }
 
-        /* OLD
-        //count edges
-        int numEdges = numVerts; //type 1 edges, see below
+    /* converts a sat instance into a coloured graph with one vertex per clause, that is connected to the
+     * literals of the clause. Literal, connection and clause vertices get LITERAL_COLOUR, CONNECTOR_COLOUR and
+     * CLAUSE_COLOUR, so they can't be mapped onto each other.
+     * Unlike convert, the size of the graph is linear in the size of the instance, and it keeps which literals
+     * share a clause.
+     */
+    public static Graph convertClauseVertices(SAT_Instance s) throws Exception{
         LinkedList<LinkedList<Literal>> clauses = s.getClauses();
+        long expectedEdges = 0;
+        for(LinkedList<Literal> clause : clauses)
+            expectedEdges += clause.size();
+        EdgeListBuilder edges = literalGraph(s.getNumVars(), expectedEdges);
+        int[] literals = new int[0];
         for(LinkedList<Literal> clause : clauses){
-            for(Literal l : clause){
-                numEdges++;     //type 2 edges, see below
+            literals = toArray(clause, literals);
+            addClauseVertex(edges, s.getNumVars(), literals, clause.size());
+        }
+        return edges.build(clauseVertexColours(s.getNumVars(), edges.getNumVertices()));
+    }
+
+    /* converts the sat instance in the cnf file at <path> like convert (or convertClauseVertices if
+     * <clauseVertices> is set), reading it clause by clause, so that only the edges of the graph are kept in
+     * memory
+     */
+    public static Graph convertFile(String path, boolean clauseVertices) throws Exception{
+        CNF_Reader reader = new CNF_Reader(path);
+        try{
+            int numVars = reader.getNumVars();
+            EdgeListBuilder edges = literalGraph(numVars, (long)reader.getDeclaredClauses()*(clauseVertices ? 3 : 6));
+            int length;
+            while((length = reader.nextClause()) != -1){
+                if(clauseVertices)
+                    addClauseVertex(edges, numVars, reader.getLiterals(), length);
+                else
+                    addClique(edges, numVars, reader.getLiterals(), length);
             }
+            if(reader.getNumClauses() != reader.getDeclaredClauses())
+                System.out.println("WARNING: Number of clauses specified in cnf file ("
+                        +reader.getDeclaredClauses()+") does not match number of clauses found in file ("
+                        +reader.getNumClauses()+")!");
+            if(clauseVertices)
+                return edges.build(clauseVertexColours(numVars, edges.getNumVertices()));
+            return edges.build();
+        }finally{
+            reader.close();
         }
-        OutputWriter.append("p edge "+numVerts+" "+numEdges+"\n");
-        //type 1: One edge between every literal i and it's complement ~i
-        for(int i=1; i<=numVars; i++){
-            OutputWriter.append("e "+i+" "+(numVars+i)+"\n");
+    }
+
+    /* creates the vertices of the literals, and the connections between them:
+     * verts 0..(numVars-1) = positive literals
+     * verts numVars+..(2*numVars-1) = negated literals
+     * verts 2*numVars..(3*numVars-1) = connection vertices, each connecting one positive literal to one negated one
+     * clause vertices are added after these
+     */
+    private static EdgeListBuilder literalGraph(int numVars, long expectedClauseEdges) throws Exception{
+        long expectedEdges = 2L*numVars+expectedClauseEdges;
+        EdgeListBuilder edges = new EdgeListBuilder(3*numVars, (int)Math.min(expectedEdges, Integer.MAX_VALUE));
+        for(int i=0;i<numVars; i++){
+            edges.addEdge(i, 2*numVars+i);
+            edges.addEdge(numVars+i, 2*numVars+i);
         }
-        //type 2: for every clause c, an edge to every literal in the clause
-        int clauseCount = 2*numVars+1;
-        for(LinkedList<Literal> clause : clauses){
-            for(Literal l : clause){
-                int vertexNum = (l.isNegated()) ? l.getID()+numVars : l.getID();
-                OutputWriter.append("e "+clauseCount+" "+vertexNum+"\n");
-            }
-        }*/
+        return edges;
+    }
+
+    /* the literals of a clause form a clique (literals of the same variable aren't connected)
+     * literals are given as in a cnf file, i.e. -v for the negated literal of variable v
+     */
+    private static void addClique(EdgeListBuilder edges, int numVars, int[] literals, int length) throws Exception{
+        for(int a=0; a<length; a++)
+            for(int b=a+1; b<length; b++)
+                if(Math.abs(literals[a]) != Math.abs(literals[b]))
+                    edges.addEdge(vertexOf(literals[a], numVars), vertexOf(literals[b], numVars));
+    }
+
+    private static void addClauseVertex(EdgeListBuilder edges, int numVars, int[] literals, int length) throws Exception{
+        int clauseVertex = edges.addVertex();
+        for(int a=0; a<length; a++)
+            edges.addEdge(clauseVertex, vertexOf(literals[a], numVars));
+    }
+
+    private static int[] clauseVertexColours(int numVars, int numVerts){
+        int[] colours = new int[numVerts];
+        Arrays.fill(colours, 0, 2*numVars, LITERAL_COLOUR);
+        Arrays.fill(colours, 2*numVars, 3*numVars, CONNECTOR_COLOUR);
+        Arrays.fill(colours, 3*numVars, numVerts, CLAUSE_COLOUR);
+        return colours;
+    }
+
+    private static int vertexOf(int literal, int numVars){
+        return (literal < 0) ? -literal-1+numVars : literal-1;
+    }
+
+    private static int[] toArray(LinkedList<Literal> clause, int[] buffer){
+        if(clause.size() > buffer.length)
+            buffer = new int[clause.size()];
+        int i = 0;
+        for(Literal l : clause)
+            buffer[i++] = (l.isNegated()) ? -l.getID() : l.getID();
+        return buffer;
     }
 }
@@ -1,7 +1,14 @@
 
 package instanceconverter;
 
+import converters.gi_to_sat.AMO_Encoding;
+import converters.gi_to_sat.EdgeEncoding;
+import converters.gi_to_sat.GI_Options;
 import converters.gi_to_sat.GI_to_SAT;
+import converters.gi_to_sat.NotIsomorphicException;
+import converters.gi_to_sat.VertexInvariant;
+import converters.gi_to_sat.VariableMapping;
+import converters.labs_to_pbs.LABS_Options;
 import converters.labs_to_pbs.LABS_to_PBS;
 import converters.labs_to_pbs.LABS_to_PBS_simple;
 import converters.sat_to_graph.SAT_to_Graph;
@@ -9,18 +16,28 @@ import io.BinaryInputReader;
 import io.InputReader;
 import io.OutputWriter;
 import java.io.File;
+import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import model.graph.Graph;
 import model.labs.LABS_Instance;
 import model.pseudoBoolean.PBS_Instance;
-import model.sat.SAT_Instance;
+import model.pseudoBoolean.SummandRenderer;
+import model.sat.CNF_Statistics;
 
 /**
  *
  * @author Frank Mugrauer
  */
 public class InstanceConverter {
+    //exit code of gi and cnfiso mode if the instances are found to be not isomorphic without creating a
+    //sat instance (the exit code of sat solvers for unsatisfiable instances)
+    private static final int EXIT_NOT_ISOMORPHIC = 20;
 
     /**
      * @param args the command line arguments
@@ -89,7 +106,7 @@ public class InstanceConverter {
             List<Graph> graphs = Graph.readGraphsFromFileGENREG(inBytes, n, k, numberOfGraphs);
             int count = 1;
             for(Graph g : graphs){
-                OutputWriter.writeFile(g.toString(), inFile+"_"+count+".col");
+                OutputWriter.writeGraph(g, false, inFile+"_"+count+".col");
                 count++;
             }
         }catch(Exception e){
@@ -121,9 +138,9 @@ public class InstanceConverter {
             System.out.println("Creating Graphs ...");
             Graph[] graphs = Graph.createGraphGroup(g);
             System.out.println("Writing Graphs ...");
-            OutputWriter.writeFile(graphs[0].toStringColoured(), inputFile+"_"+numVertsPerColour+"-1.clr");
-            OutputWriter.writeFile(graphs[1].toStringColoured(), inputFile+"_"+numVertsPerColour+"-2.clr");
-            OutputWriter.writeFile(graphs[2].toStringColoured(), inputFile+"_"+numVertsPerColour+"-3.clr");
+            OutputWriter.writeGraph(graphs[0], true, inputFile+"_"+numVertsPerColour+"-1.clr");
+            OutputWriter.writeGraph(graphs[1], true, inputFile+"_"+numVertsPerColour+"-2.clr");
+            OutputWriter.writeGraph(graphs[2], true, inputFile+"_"+numVertsPerColour+"-3.clr");
             System.out.println("done.");
             /*for(int i=0; i<graphs[0].getNumVertices(); i++){
                 for(int j=0; j<graphs[0].getNumVertices(); j++){
@@ -173,8 +190,8 @@ public class InstanceConverter {
             System.out.println("Creating isomorphic graph ...");
             Graph g2 = Graph.createIsomorphicGraph(g);
             System.out.println("Writing graphs ...");
-            OutputWriter.writeFile(g.toStringColoured(), inputFile+"-1.clr");
-            OutputWriter.writeFile(g2.toStringColoured(), inputFile+"-2.clr");
+            OutputWriter.writeGraph(g, true, inputFile+"-1.clr");
+            OutputWriter.writeGraph(g2, true, inputFile+"-2.clr");
             System.out.println("done.");
         }catch(Exception e){
             System.out.println("Error while reading files:");
@@ -188,36 +205,55 @@ public class InstanceConverter {
     /* Program logic for cnfiso mode
      */
     private static void cnfiso(String[] args){
-        if(args.length != 4)
+        if(args.length < 4 || args.length > 5)
             printUsageCNFISO();
         String inFile1 = args[1];
         String inFile2 = args[2];
         String outFile = args[3];
+        boolean clauseVertices = false;
+        if(args.length == 5){
+            if(args[4].equalsIgnoreCase("clauses"))
+                clauseVertices = true;
+            else
+                printUsageCNFISO();
+        }
+        OutputWriter out = null;
         try{
-            System.out.println("Reading SAT instances ...");
-            SAT_Instance sat1 = SAT_Instance.createSAT_InstanceFromFile(InputReader.readFile(inFile1));
-            SAT_Instance sat2 = SAT_Instance.createSAT_InstanceFromFile(InputReader.readFile(inFile2));
+            System.out.println("Comparing invariants ...");
+            String difference = CNF_Statistics.fromFile(inFile1).findDifference(CNF_Statistics.fromFile(inFile2));
+            if(difference != null){
+                System.out.println(difference+"\nThe instances are certainly NOT isomorphic!");
+                System.exit(EXIT_NOT_ISOMORPHIC);
+            }
             System.out.println("Converting to graphs ...");
-            Graph g1 = SAT_to_Graph.convert(sat1);
-            Graph g2 = SAT_to_Graph.convert(sat2);
+            Graph g1 = SAT_to_Graph.convertFile(inFile1, clauseVertices);
+            Graph g2 = SAT_to_Graph.convertFile(inFile2, clauseVertices);
 
             System.out.println("Converting to SAT ...");
-            OutputWriter.beginFile(outFile);
-            OutputWriter.append("c Instance representing the isomorphism of two sat instances:\nc "
+            GI_Options options = new GI_Options();
+            options.setSimplify(true);
+            GI_to_SAT converter = new GI_to_SAT(options);
+            converter.prepare(g1, g2);
+            out = new OutputWriter(outFile);
+            out.append("c Instance representing the isomorphism of two sat instances:\nc "
                 +inFile1+"\nc "+inFile2+"\n");
-            int[][] varNames = GI_to_SAT.convert(g1, g2, true);
-            OutputWriter.closeFile();
+            VariableMapping mapping = converter.write(out);
+            out.closeFile();
             System.out.println("Writing variable mapping ...");
-            OutputWriter.beginFile(outFile+"_varMapping");
-            for(int i=0; i<varNames.length; i++)
-                for(int j=0; j<varNames[0].length; j++)
-                    if(varNames[i][j] != -1)
-                        OutputWriter.append(varNames[i][j]+" "+(i+1)+" "+(j+1)+"\n");
-            OutputWriter.closeFile();
+            out = new OutputWriter(outFile+"_varMapping");
+            mapping.writeTo(out);
+            out.closeFile();
             System.out.println("done.");
+        }catch(NotIsomorphicException e){
+            System.out.println(e.getMessage());
+            System.exit(EXIT_NOT_ISOMORPHIC);
         }catch(Exception e){
             System.out.println("Error while reading files:");
             System.out.println(e.getMessage());
+            try{
+                if(out != null)
+                    out.closeFile();
+            }catch(Exception e1){}
             System.exit(1);
         }
     }
@@ -226,17 +262,19 @@ public class InstanceConverter {
      */
     private static void cnfg(String[] args){
             try{
-                if(args.length != 3)
+                if(args.length < 3 || args.length > 4)
                     printUsageCNFG();
-                System.out.println("Reading instance ...");
-                SAT_Instance sat = SAT_Instance.createSAT_InstanceFromFile(InputReader.readFile(args[1]));
-                sat.appendFileNameInfo(args[1]);
+                boolean clauseVertices = false;
+                if(args.length == 4){
+                    if(args[3].equalsIgnoreCase("clauses"))
+                        clauseVertices = true;
+                    else
+                        printUsageCNFG();
+                }
                 System.out.println("Converting ...");
-                OutputWriter.beginFile(args[2]);
-                Graph g = SAT_to_Graph.convert(sat);
+                Graph g = SAT_to_Graph.convertFile(args[1], clauseVertices);
                 System.out.println("Writing ...");
-                OutputWriter.append(g.toString());
-                OutputWriter.closeFile();
+                OutputWriter.writeGraph(g, clauseVertices, args[2]);
                 System.out.println("Done!");
             }catch(Exception e){
                 System.out.println("Error while reading file: \n");
@@ -249,20 +287,29 @@ public class InstanceConverter {
     /* Program logic for labs mode
      */
     private static void labs(String[] args){
-            if(args.length < 4 || args.length > 5)
+            if(args.length < 4 || args.length > 7)
                 printUsageLABS();
             int length = stringToInt(args[1]);
             int minTarget = stringToInt(args[2]);
             int maxTarget = stringToInt(args[3]);
             boolean energy = false;
-            if(args.length == 5){
-                if(args[4].equalsIgnoreCase("energy"))
+            LABS_Options options = new LABS_Options();
+            for(int i=4; i<args.length; i++){
+                if(args[i].equalsIgnoreCase("energy"))
                     energy = true;
-                else if(!args[4].equalsIgnoreCase("autoCorr"))
+                else if(args[i].equalsIgnoreCase("symmetry"))
+                    options.setBreakSymmetries(true);
+                else if(args[i].equalsIgnoreCase("skew"))
+                    options.setSkewSymmetric(true);
+                else if(!args[i].equalsIgnoreCase("autoCorr"))
                     printUsageLABS();
             }
+            if(options.isSkewSymmetric() && length%2 == 0){
+                System.out.println("Only sequences of odd length can be skew-symmetric.");
+                System.exit(1);
+            }
             System.out.print("Converting to PBS ... ");
-            labs_to_pbs(energy, length, minTarget, maxTarget);
+            labs_to_pbs(energy, length, minTarget, maxTarget, options);
             System.out.println("done.");
     }
 
@@ -287,9 +334,9 @@ public class InstanceConverter {
                 System.out.print("done\nWriting graphs to files ... ");
                 String outputFileName = "graph_"+toThreeDigits(numVertices)
                                         +"_"+toThreeDigits(toInteger(edgeProbability))+"_";
-                OutputWriter.writeFile(g1.toString(), outputFileName+"1.col");
-                OutputWriter.writeFile(g2.toString(), outputFileName+"2.col");
-                OutputWriter.writeFile(g3.toString(), outputFileName+"3.col");
+                OutputWriter.writeGraph(g1, false, outputFileName+"1.col");
+                OutputWriter.writeGraph(g2, false, outputFileName+"2.col");
+                OutputWriter.writeGraph(g3, false, outputFileName+"3.col");
                 System.out.println("done.");
             }catch(NumberFormatException e){
                 System.out.println("ERROR: One of the parameters is not a valid number!");
@@ -303,18 +350,38 @@ public class InstanceConverter {
     /* Program logic for gi mode
      */
     private static void gi(String[] args){
-            if(args.length < 3 || args.length > 6)
+            if(args.length < 3 || args.length > 13)
                 printUsageGI();
             String outputFile = "out.cnf";
+            OutputWriter out = null;
             try{
-                boolean simplify = false;
+                GI_Options options = new GI_Options();
                 String inputFormat = "DIMACS";
+                boolean binaryMapping = false;
                 if(args.length > 3){
                     for(int i=3; i<args.length; i++){
                         if(args[i].equalsIgnoreCase("simplify"))
-                            simplify=true;
+                            options.setSimplify(true);
                         else if(args[i].startsWith("out="))
                             outputFile = args[i].substring(4);
+                        else if(args[i].startsWith("amo="))
+                            options.setAMO_Encoding(AMO_Encoding.valueOf(args[i].substring(4).toUpperCase()));
+                        else if(args[i].startsWith("edges="))
+                            options.setEdgeEncoding(EdgeEncoding.valueOf(args[i].substring(6).toUpperCase()));
+                        else if(args[i].equalsIgnoreCase("nocomplement"))
+                            options.setComplement(false);
+                        else if(args[i].equalsIgnoreCase("nopropagate"))
+                            options.setPropagate(false);
+                        else if(args[i].startsWith("threads="))
+                            options.setThreads(Integer.parseInt(args[i].substring(8)));
+                        else if(args[i].equalsIgnoreCase("binarymap"))
+                            binaryMapping = true;
+                        else if(args[i].startsWith("invariants=")){
+                            EnumSet<VertexInvariant> invariants = EnumSet.noneOf(VertexInvariant.class);
+                            for(String name : args[i].substring(11).split(","))
+                                invariants.add(VertexInvariant.valueOf(name.toUpperCase()));
+                            options.setInvariants(invariants);
+                        }
                         else if(args[i].equalsIgnoreCase("SIVALab"))
                             inputFormat = "SIVALab";
                         else if(args[i].equalsIgnoreCase("COLOURED"))
@@ -325,7 +392,9 @@ public class InstanceConverter {
                 }
                 System.out.println("Input format is: "+inputFormat);
                 System.out.println("Output file: "+outputFile);
-                System.out.println("Simplify: "+simplify);
+                System.out.println("Simplify: "+options.isSimplify());
+                System.out.println("At-most-one encoding: "+options.getAMO_Encoding());
+                System.out.println("Edge encoding: "+options.getEdgeEncoding());
                 Graph g1, g2;
                 System.out.println("Reading graph files ... ");
                 if(inputFormat.equalsIgnoreCase("DIMACS")){
@@ -342,28 +411,37 @@ public class InstanceConverter {
                 //OutputWriter.writeFile(g1.toString(), "graph1.col");
                 //OutputWriter.writeFile(g2.toString(), "graph2.col");
                 System.out.println("Converting to SAT ...");
-                OutputWriter.beginFile(outputFile);
-                OutputWriter.append("c Instance representing the graph isomorphism of two graphs:\nc "
+                GI_to_SAT converter = new GI_to_SAT(options);
+                converter.prepare(g1, g2);
+                out = new OutputWriter(outputFile);
+                out.append("c Instance representing the graph isomorphism of two graphs:\nc "
                     +args[1]+"\nc "+args[2]+"\n");
-                OutputWriter.append("c Graphs have "+g1.getNumVertices()+" vertices and "+g1.getNumEdges()+" edges\n");
-                int[][] varNames = GI_to_SAT.convert(g1, g2, simplify);
-                OutputWriter.closeFile();
+                out.append("c Graphs have "+g1.getNumVertices()+" vertices and "+g1.getNumEdges()+" edges\n");
+                VariableMapping mapping = converter.write(out);
+                out.closeFile();
                 System.out.println("Writing variable mapping ...");
-                OutputWriter.beginFile(outputFile+"_varMapping");
-                for(int i=0; i<varNames.length; i++)
-                    for(int j=0; j<varNames[0].length; j++)
-                        if(varNames[i][j] != -1)
-                            OutputWriter.append(varNames[i][j]+" "+(i+1)+" "+(j+1)+"\n");
-                OutputWriter.closeFile();
+                if(binaryMapping){
+                    OutputWriter.writeBinaryFile(mapping.toBinary(), outputFile+"_varMapping");
+                }else{
+                    out = new OutputWriter(outputFile+"_varMapping");
+                    mapping.writeTo(out);
+                    out.closeFile();
+                }
                 System.out.println("done.");
                 //sat.setGraphNames(args[1], args[2]);
 
                 //OutputWriter.writeInstance(sat, outputFile);
+            }catch(NotIsomorphicException e){
+                //thrown before any files have been created
+                System.out.println(e.getMessage());
+                System.exit(EXIT_NOT_ISOMORPHIC);
             }catch(Exception e){
                 System.out.println("ERROR: "+e.getMessage());
                 //e.printStackTrace();
                 try{
                     //clean up files
+                    if(out != null)
+                        out.closeFile();
                     OutputWriter.cleanUp(outputFile);
                     OutputWriter.cleanUp(outputFile+"_varMapping");
                 }catch(Exception e1){}
@@ -429,18 +507,26 @@ public class InstanceConverter {
     /* prints out instructions on how to use the program in cnfiso mode
      */
     private static void printUsageCNFISO(){
-        System.out.println("Usage: \njava -jar InstanceConverter.jar cnfiso <inputCNF1> <inputCNF2> <outputCNF>");
+        System.out.println("Usage: \njava -jar InstanceConverter.jar cnfiso <inputCNF1> <inputCNF2> <outputCNF> [clauses]");
         System.out.println("inputCNF1/2 - input files containing sat instances in cnf");
         System.out.println("outputCNF - sat instance that is satisfiable in and only if the two input instances are isomorph");
+        System.out.println("clauses - compare the coloured graphs with one vertex per clause (see cnfg)");
+        System.out.println("If the instances are found to be not isomorphic before the sat instance is created "
+                +"(e.g. because they have different numbers of clauses of some length, or different numbers of "
+                +"occurrences of their literals), no files are written and the exit code is "+EXIT_NOT_ISOMORPHIC);
         System.exit(1);
     }
 
     /* prints out instructions on how to use the program in cnfg mode
      */
     private static void printUsageCNFG(){
-        System.out.println("Usage: \njava -jar InstanceConverter.jar cnfg <inputFile> <outputFile>");
+        System.out.println("Usage: \njava -jar InstanceConverter.jar cnfg <inputFile> <outputFile> [clauses]");
         System.out.println("inputFile - File containing a SAT instance in cnf");
         System.out.println("outputFile - The graph will be written to this file");
+        System.out.println("clauses - create a graph with one vertex per clause, connected to the literals of the clause, "
+                +"instead of connecting the literals of every clause with each other. The graph is written in COLOURED "
+                +"format, literals have colour "+SAT_to_Graph.LITERAL_COLOUR+", the vertices connecting a literal to "
+                +"its complement colour "+SAT_to_Graph.CONNECTOR_COLOUR+" and clauses colour "+SAT_to_Graph.CLAUSE_COLOUR);
         System.exit(1);
     }
 
@@ -460,17 +546,35 @@ public class InstanceConverter {
      */
     private static void printUsageGI(){
         System.out.println("Usage: \njava -jar InstanceConverter.jar gi <graph1> <graph2> "
-                +"[out=<outputFile>] [simplify] [SIVALab]");
+                +"[out=<outputFile>] [simplify] [amo=<encoding>] [edges=<encoding>] [nocomplement] [nopropagate] [threads=<n>] [binarymap] [invariants=<list>] [SIVALab|COLOURED]");
         System.out.println("graph1/2 - Files containing one graph each, default format is DIMACS "
                 +"(http://prolland.free.fr/works/research/dsat/dimacs.html)");
         System.out.println("simplify - if set, the converter will attempt to simplify the "
                 +"resulting sat instance (simplification is highly recommended)");
+        System.out.println("amo - encoding of the clauses that prevent two vertices from being mapped to the same "
+                +"vertex: pairwise (default), sequential, commander or product. All but pairwise introduce "
+                +"auxiliary variables, which do not appear in the variable mapping");
+        System.out.println("edges - encoding of the clauses that map edges to edges: conflict (forbid mapping an edge to "
+                +"a non-edge), support (a vertex's neighbours are mapped to the neighbours of its image) or auto "
+                +"(default, picks the one that is estimated to result in the smaller instance)");
+        System.out.println("nocomplement - if set, edge clauses of graphs with more edges than non-edges are not "
+                +"encoded over the complement graphs");
+        System.out.println("nopropagate - if set, mappings that are forced after simplification are not fixed "
+                +"in advance");
+        System.out.println("threads=<n> - number of threads that generate the clauses (default: 1)");
+        System.out.println("invariants - comma separated list of vertex invariants that rule out mappings when "
+                +"simplifying: triangles, four_cycles, distances (default: none)");
+        System.out.println("binarymap - if set, the variable mapping is written in a compact binary format "
+                +"(see VariableMapping)");
         System.out.println("SIVALab - set this, if the input graphs are in SIVALab format "
                 +"(https://docs.google.com/viewer?a=v&q=cache:0_k1HsL70CsJ:amalfi.dis.unina.it/graph/doc/graphdb.pdf+sivalab+graph&hl=es&pid=bl&srcid=ADGEESjAkVTGU9xlfHuKq8VqTAOeV-HkkEUJISO-gqu5GBImNt_imx8PUCHzAJhF478_BrGln2zcIwbqT53-uXmQA8gqY94nLOLldosEXrOGN0HDSBPlDFViBgoYdLr8dZbKzAG4q7e-&sig=AHIEtbQ_4A1vb8gtlrCBzyCAxBfgZJgVdA) instead of DIMACS");
         System.out.println("COLOURED - set this, if the input graphs are in COLOURED format");
         System.out.println("outputFile - the generated sat instance will be written to this file "
                 +"(default filename: out.cnf). Also, the mapping of variables (cnf vars and graph vertexes) "
-                +"will be written to <outputFile>_varMapping");
+                +"will be written to <outputFile>_varMapping, where variable 0 marks mappings that the "
+                +"converter has fixed in advance");
+        System.out.println("If the graphs are found to be not isomorphic before the sat instance is created, "
+                +"no files are written and the exit code is "+EXIT_NOT_ISOMORPHIC);
         System.exit(1);
     }
 
@@ -478,16 +582,21 @@ public class InstanceConverter {
      */
     private static void printUsageLABS(){
         System.out.println("Usage: \njava -jar InstanceConverter.jar"
-                +" labs <length> <minTarget> <maxTarget> <targetType>");
+                +" labs <length> <minTarget> <maxTarget> <targetType> [symmetry] [skew]");
         System.out.println("length - The number of bits in the binary sequence");
         System.out.println("minTarget/maxTarget - The (inclusive) range of target values for which"
                 +" PBS instances will be created");
         System.out.println("targetType - [energy|autoCorr] whether the specified targets are to be understood "
                 +"as energies, or maximum values for the autocorrelation");
+        System.out.println("symmetry - adds constraints that exclude sequences which are symmetric to others"
+                +" (complemented, reversed or alternatingly negated)");
+        System.out.println("skew - only searches skew-symmetric sequences (odd lengths only), which halves the"
+                +" number of variables, but may miss the optimum");
         System.exit(1);
     }
 
-    private static void labs_to_pbs(boolean energy, int length, int minTarget, int maxTarget){
+    private static void labs_to_pbs(boolean energy, int length, int minTarget, int maxTarget,
+            LABS_Options options){
         int[] ts = new int[maxTarget-minTarget+1];
         for(int i=0; i<ts.length; i++)
             ts[i] = i + minTarget;
@@ -496,20 +605,63 @@ public class InstanceConverter {
 
         PBS_Instance[] instances;
         if(energy)
-            instances = LABS_to_PBS.convert(labs);
+            instances = new LABS_to_PBS(options).convert(labs);
         else
-            instances = LABS_to_PBS_simple.convert(labs);
-        int count=0;
+            instances = LABS_to_PBS_simple.convert(labs, options);
         int[] targets = labs.getTargets();
-        for(PBS_Instance i : instances){
-            String n = outputFileName+"_goal"+toThreeDigits(targets[count]);
+        String[] fileNames = new String[instances.length];
+        for(int count=0; count<instances.length; count++)
+            fileNames[count] = outputFileName+"_goal"+toThreeDigits(targets[count])+".obp";
+        writeInstances(instances, fileNames);
+    }
+
+    /* writes the instances into their files, in parallel on one thread per available processor
+     * The summands of all instances are rendered before, so that instances sharing their summands (see
+     * SummandRenderer) only render them once, and the writers only read them.
+     * Files that can't be written are reported after all files have been written.
+     */
+    private static void writeInstances(final PBS_Instance[] instances, final String[] fileNames){
+        final SummandRenderer renderer = new SummandRenderer();
+        try{
+            for(PBS_Instance instance : instances)
+                renderer.render(instance);
+        }catch(Exception e){
+            System.out.println(e.getMessage());
+            return;
+        }
+        int threads = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), instances.length));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<String>> futures = new ArrayList<Future<String>>();
+        for(int i=0; i<instances.length; i++){
+            final int index = i;
+            futures.add(executor.submit(new Callable<String>(){
+                public String call(){
+                    try{
+                        OutputWriter.writeInstance(instances[index], renderer, fileNames[index]);
+                        return null;
+                    }catch(Exception e){
+                        return fileNames[index]+": "+e.getMessage();
+                    }
+                }
+            }));
+        }
+        int failed = 0;
+        for(Future<String> future : futures){
+            String error;
             try{
-                OutputWriter.writeInstance(i, n+".obp");
+                error = future.get();
             }catch(Exception e){
-                System.out.println(e.getMessage());
+                error = e.getMessage();
+            }
+            if(error != null){
+                System.out.println("ERROR: "+error);
+                failed++;
             }
-            count++;
         }
+        executor.shutdown();
+        System.out.print("wrote "+(instances.length-failed)+" of "+instances.length+" files ");
+        if(failed > 0)
+            System.out.print("("+failed+" failed) ");
     }
 
     /* converts a double in [0,1] to an integer in [0,100]
@@ -0,0 +1,132 @@
+
+package io;
+
+import java.io.OutputStream;
+
+/** Collects ASCII text in a byte buffer, and passes it on to an OutputStream whenever the buffer is full, so
+ *  that large instances can be written piece by piece without building one String for the whole instance.
+ *  Numbers are formatted directly into the buffer, without creating Strings.
+ *  Without an OutputStream, the text is only collected (see getBuffer), e.g. to format parts of a file in
+ *  parallel and write them in order afterwards.
+ *
+ * @author Frank Mugrauer
+ */
+public class ChunkWriter {
+    public static final int CHUNK_SIZE = 1 << 16;
+    private final OutputStream out;
+    private byte[] buffer;
+    private int length;
+
+    /* creates a writer that writes to <out> in chunks of CHUNK_SIZE bytes; closing <out> is left to the
+     * caller
+     */
+    public ChunkWriter(OutputStream out){
+        this.out = out;
+        this.buffer = new byte[CHUNK_SIZE + 64];
+        this.length = 0;
+    }
+
+    /* creates a writer that keeps all of its text
+     */
+    public ChunkWriter(){
+        this(null);
+    }
+
+    public ChunkWriter append(char c) throws Exception{
+        ensureCapacity(1);
+        buffer[length++] = (byte)c;
+        return flushIfFull();
+    }
+
+    /* appends an ASCII string
+     */
+    public ChunkWriter append(String s) throws Exception{
+        ensureCapacity(s.length());
+        for(int i=0; i<s.length(); i++)
+            buffer[length++] = (byte)s.charAt(i);
+        return flushIfFull();
+    }
+
+    /* appends a token whose bytes have been prepared beforehand
+     * tokens longer than a chunk (e.g. text that has been rendered once and is written several times) are
+     * passed on to the OutputStream directly
+     */
+    public ChunkWriter append(byte[] token) throws Exception{
+        if(out != null && token.length > CHUNK_SIZE){
+            if(length > 0)
+                out.write(buffer, 0, length);
+            length = 0;
+            out.write(token);
+            return this;
+        }
+        ensureCapacity(token.length);
+        System.arraycopy(token, 0, buffer, length, token.length);
+        length += token.length;
+        return flushIfFull();
+    }
+
+    public ChunkWriter append(int i) throws Exception{
+        return append((long)i);
+    }
+
+    public ChunkWriter append(long l) throws Exception{
+        ensureCapacity(20);
+        if(l == Long.MIN_VALUE)
+            return append(Long.toString(l));
+        if(l < 0){
+            buffer[length++] = '-';
+            l = -l;
+        }
+        int start = length;
+        do{
+            buffer[length++] = (byte)('0' + (l % 10));
+            l /= 10;
+        }while(l != 0);
+        for(int a=start, b=length-1; a<b; a++, b--){
+            byte tmp = buffer[a];
+            buffer[a] = buffer[b];
+            buffer[b] = tmp;
+        }
+        return flushIfFull();
+    }
+
+    /* returns the number of bytes that have not been passed on to the OutputStream yet
+     */
+    public int getLength(){
+        return length;
+    }
+
+    /* returns the buffer of a writer without OutputStream; only the first getLength() bytes are text
+     */
+    public byte[] getBuffer(){
+        return buffer;
+    }
+
+    /* passes all buffered text on to the OutputStream (and flushes it)
+     */
+    public void flush() throws Exception{
+        if(out == null)
+            return;
+        if(length > 0){
+            out.write(buffer, 0, length);
+            length = 0;
+        }
+        out.flush();
+    }
+
+    private ChunkWriter flushIfFull() throws Exception{
+        if(out != null && length >= CHUNK_SIZE){
+            out.write(buffer, 0, length);
+            length = 0;
+        }
+        return this;
+    }
+
+    private void ensureCapacity(int extra){
+        if(length+extra > buffer.length){
+            byte[] larger = new byte[Math.max(2*buffer.length, length+extra)];
+            System.arraycopy(buffer, 0, larger, 0, length);
+            buffer = larger;
+        }
+    }
+}
@@ -19,14 +19,21 @@ public class InputReader {
      * @return List of strings, each string is a line in the input file
      */
     public static List<String> readFile(String path) throws Exception{
-        File f = new File(path);
-        if(!f.canRead())
-            throw new Exception("Unable to read file: "+path);
-        BufferedReader reader = new BufferedReader(new FileReader(f));
+        BufferedReader reader = openFile(path);
         LinkedList<String> content = new LinkedList<String>();
         String line;
         while((line = reader.readLine()) != null)
             content.add(line);
         return content;
     }
+
+    /* Opens an input file to be read line by line, without keeping its content in memory
+     * The caller has to close the reader.
+     */
+    public static BufferedReader openFile(String path) throws Exception{
+        File f = new File(path);
+        if(!f.canRead())
+            throw new Exception("Unable to read file: "+path);
+        return new BufferedReader(new FileReader(f));
+    }
 }
@@ -5,55 +5,110 @@
 package io;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import model.ProblemInstance;
+import model.graph.Graph;
+import model.pseudoBoolean.PBS_Instance;
+import model.pseudoBoolean.SummandRenderer;
 
 /** Convenience class for writing problem instance specifications to files
+ *  Files that are written piece by piece are handled by OutputWriter objects, one per file
  *
  * @author Frank Mugrauer
  */
 public class OutputWriter {
-    private static FileWriter writer;
-    private static boolean open;
+    private FileWriter writer;
+    private boolean open;
+
+    /* attempts to create a file at fileName, which can then be written piece by piece via append()
+     */
+    public OutputWriter(String fileName) throws Exception{
+        writer = new FileWriter(createFile(fileName));
+        open = true;
+    }
+
+    public void append(String s) throws Exception{
+        writer.append(s);
+    }
+    public void closeFile() throws Exception{
+        if(open){
+            writer.flush();
+            writer.close();
+            open = false;
+        }
+    }
+
     /* attempts to create a file at fileName, then attempts to write the content of instance into it
      */
     public static void writeInstance(ProblemInstance instance, String fileName) throws Exception{
-        File f = new File(fileName);
-        if(f.exists()){
-            f.delete();
-            f = new File(fileName);
+        FileOutputStream stream = new FileOutputStream(createFile(fileName));
+        try{
+            System.out.print("Writing to file ... ");
+            instance.writeTo(stream);
+            System.out.println("done.");
+        }finally{
+            stream.close();
         }
-        f.createNewFile();
-        if(!f.canWrite()){
-            throw new Exception("ERROR: Cannot write file: "+fileName);
+    }
+
+    /* as writeInstance(instance, fileName), but the summands are formatted by <renderer>, so summands that are
+     * shared by several instances are only formatted once
+     * Prints nothing, so that several instances can be written at the same time.
+     */
+    public static void writeInstance(PBS_Instance instance, SummandRenderer renderer, String fileName)
+            throws Exception{
+        FileOutputStream stream = new FileOutputStream(createFile(fileName));
+        try{
+            instance.writeTo(stream, renderer);
+        }finally{
+            stream.close();
         }
-        FileWriter writer = new FileWriter(f);
-        System.out.print("Generating content ... ");
-        String content = instance.toString();
-        System.out.print("done.\nWriting to file ... ");
+    }
+
+    /* attempts to create a file at fileName, then writes <g> into it, in DIMACS format or (if <coloured> is
+     * set) in COLOURED format
+     * Large graphs are formatted by one thread per available processor.
+     */
+    public static void writeGraph(Graph g, boolean coloured, String fileName) throws Exception{
+        int threads = Runtime.getRuntime().availableProcessors();
+        FileOutputStream stream = new FileOutputStream(createFile(fileName));
+        try{
+            if(coloured)
+                g.writeColouredTo(stream, threads);
+            else
+                g.writeTo(stream, threads);
+        }finally{
+            stream.close();
+        }
+    }
+
+    public static void writeFile(String content, String fileName) throws Exception{
+        FileWriter writer = new FileWriter(createFile(fileName));
         writer.write(content, 0, content.length());
         writer.flush();
         writer.close();
-        System.out.println("done.");
     }
 
-    public static void writeFile(String content, String fileName) throws Exception{
+    public static void writeBinaryFile(byte[] content, String fileName) throws Exception{
+        FileOutputStream stream = new FileOutputStream(createFile(fileName));
+        stream.write(content);
+        stream.flush();
+        stream.close();
+    }
+
+    /* deletes the file at fileName, if it exists
+     * OutputWriters that are still writing to this file need to be closed first
+     */
+    public static void cleanUp(String fileName) throws Exception{
         File f = new File(fileName);
-        if(f.exists()){
+        if(f.exists())
             f.delete();
-            f = new File(fileName);
-        }
-        f.createNewFile();
-        if(!f.canWrite()){
-            throw new Exception("ERROR: Cannot write file: "+fileName);
-        }
-        FileWriter writer = new FileWriter(f);
-        writer.write(content, 0, content.length());
-        writer.flush();
-        writer.close();
     }
 
-    public static void beginFile(String fileName) throws Exception{
+    /* creates an empty file at fileName, replacing any existing file
+     */
+    private static File createFile(String fileName) throws Exception{
         File f = new File(fileName);
         if(f.exists()){
             f.delete();
@@ -63,26 +118,6 @@ public class OutputWriter {
         if(!f.canWrite()){
             throw new Exception("ERROR: Cannot write file: "+fileName);
         }
-        writer = new FileWriter(f);
-        open = true;
-    }
-    public static void append(String s) throws Exception{
-        writer.append(s);
-    }
-    public static void closeFile() throws Exception{
-        if(open){
-            writer.flush();
-            writer.close();
-            open = false;
-        }
-    }
-
-
-    public static void cleanUp(String fileName) throws Exception{
-        if(open)
-            closeFile();
-        File f = new File(fileName);
-        if(f.exists())
-            f.delete();
+        return f;
     }
 }
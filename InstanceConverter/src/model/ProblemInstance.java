@@ -1,6 +1,8 @@
 
 package model;
 
+import java.io.OutputStream;
+
 /** Interface for all representations of problem instances (e.g. SAT, PBS, LABS, ...)
  *
  * @author Frank Mugrauer
@@ -12,6 +14,11 @@ public interface ProblemInstance {
     @Override
     public String toString();
 
+    /* writes the same representation as toString() to <out>, piece by piece, so that the representation of a
+     * large instance is never held in memory as a whole
+     */
+    public void writeTo(OutputStream out) throws Exception;
+
     /* Abbreviation of this instance type, e.g. "SAT" or "PBS"
      */
     public String instanceType();
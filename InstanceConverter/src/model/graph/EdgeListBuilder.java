@@ -0,0 +1,114 @@
+
+package model.graph;
+
+/** Collects the edges of a graph one by one, and creates a graph without adjacency matrix from them
+ *  (see Graph.fromEdgeList), so that large sparse graphs only take memory proportional to their number of
+ *  edges.
+ *  Edges are stored as one long per edge (smaller vertex in the upper, larger vertex in the lower 32 bits)
+ *  in an open addressing hash set, which drops duplicate edges without creating an object per edge.
+ *  Self-loops are ignored.
+ *
+ * @author Frank Mugrauer
+ */
+public class EdgeListBuilder {
+    private static final long EMPTY = -1;
+    private int numVertices;
+    private long[] table;
+    private int numEdges;
+
+    /* <expectedEdges> is only used to choose the initial size of the hash set
+     */
+    public EdgeListBuilder(int numVertices, int expectedEdges){
+        this.numVertices = numVertices;
+        int capacity = 16;
+        while(capacity < 2L*expectedEdges && capacity < (1 << 30))
+            capacity <<= 1;
+        table = newTable(capacity);
+        numEdges = 0;
+    }
+
+    /* adds the edge between v1 and v2 (0-based), unless it has been added before
+     */
+    public void addEdge(int v1, int v2) throws Exception{
+        if(v1 < 0 || v1 >= numVertices || v2 < 0 || v2 >= numVertices)
+            throw new Exception("Illegal edge ("+v1+","+v2+") for a graph with "+numVertices+" vertices");
+        if(v1 == v2)
+            return;
+        long edge = (v1 < v2) ? ((long)v1 << 32) | v2 : ((long)v2 << 32) | v1;
+        if(insert(table, edge)){
+            numEdges++;
+            if(2L*numEdges > table.length)
+                grow();
+        }
+    }
+
+    /* adds a new vertex without edges, and returns its index
+     */
+    public int addVertex(){
+        return numVertices++;
+    }
+
+    public int getNumVertices(){
+        return numVertices;
+    }
+
+    public int getNumEdges(){
+        return numEdges;
+    }
+
+    /* creates the graph (all vertices have the same colour)
+     */
+    public Graph build() throws Exception{
+        int[] colours = new int[numVertices];
+        for(int i=0; i<numVertices; i++)
+            colours[i] = 1;
+        return build(colours);
+    }
+
+    /* creates the graph, vertex i gets colour colours[i] (colours start at 1)
+     */
+    public Graph build(int[] colours) throws Exception{
+        if(colours.length != numVertices)
+            throw new Exception("Got "+colours.length+" colours for a graph with "+numVertices+" vertices");
+        long[] edges = new long[numEdges];
+        int count = 0;
+        for(long edge : table)
+            if(edge != EMPTY)
+                edges[count++] = edge;
+        return Graph.fromEdgeList(numVertices, edges, colours);
+    }
+
+    /* returns whether <edge> was new
+     */
+    private static boolean insert(long[] table, long edge){
+        int mask = table.length-1;
+        int slot = hash(edge) & mask;
+        while(table[slot] != EMPTY){
+            if(table[slot] == edge)
+                return false;
+            slot = (slot+1) & mask;
+        }
+        table[slot] = edge;
+        return true;
+    }
+
+    private void grow(){
+        long[] old = table;
+        table = newTable(2*old.length);
+        for(long edge : old)
+            if(edge != EMPTY)
+                insert(table, edge);
+    }
+
+    private static long[] newTable(int capacity){
+        long[] table = new long[capacity];
+        for(int i=0; i<capacity; i++)
+            table[i] = EMPTY;
+        return table;
+    }
+
+    private static int hash(long edge){
+        edge *= 0x9e3779b97f4a7c15L;
+        return (int)(edge >>> 32) ^ (int)edge;
+    }
+}
@@ -1,6 +1,9 @@
 
 package model.graph;
 
+import io.ChunkWriter;
+import java.io.OutputStream;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
@@ -8,6 +11,8 @@ import java.util.Random;
 
 /** Represents an undirected graph without multiple edges in form of an adjacency matrix
  * vertices are addressed by index, from 0..(n-1)
+ * Large sparse graphs (see fromEdgeList) are stored by their neighbour lists only, without an adjacency
+ * matrix, so they need memory proportional to their number of edges.
  * This class can (optionally) handle graphs with coloured vertices, although some of the
  * methods IGNORE COLOURS (since many input formats don't support colours).
  * If in doubt, read the documentation for the method - those that ignore colours will
@@ -17,16 +22,20 @@ import java.util.Random;
  */
 public class Graph {
 
-    private boolean[][] adjMatrix;
+    private boolean[][] adjMatrix;      //null for graphs created from an edge list
     private int[] degrees;
     private int[] colours;
     private int numColours;
     private int numEdges;
+    private int[][] neighbours;
 
     /* creates an empty graph with <numVertices> vertices, and no edges. All vertices
      * have the same colour.
      * To be used by the generator methods.
      */
+    private Graph(){
+    }
+
     private Graph(int numVertices){
         this.adjMatrix = new boolean[numVertices][numVertices];
         this.degrees = new int[numVertices];
@@ -42,6 +51,8 @@ public class Graph {
     }
 
     public boolean containsEdge(int v1, int v2){
+        if(adjMatrix == null)
+            return Arrays.binarySearch(neighbours[v1], v2) >= 0;
         return adjMatrix[v1][v2];
     }
     public int getDegree(int vertex){
@@ -60,6 +71,34 @@ public class Graph {
         return numColours;
     }
 
+    /* returns the neighbours of <vertex>, in ascending order
+     * The neighbour lists are built from the adjacency matrix the first time they are requested (unless the
+     * graph has been created from an edge list), so the edges of a graph must not be changed after this method
+     * has been called.
+     */
+    public int[] getNeighbours(int vertex){
+        return neighbourLists()[vertex];
+    }
+
+    private synchronized int[][] neighbourLists(){
+        if(neighbours == null){
+            int[][] lists = new int[degrees.length][];
+            for(int i=0; i<degrees.length; i++){
+                int count = 0;
+                for(int j=0; j<degrees.length; j++)
+                    if(adjMatrix[i][j])
+                        count++;
+                lists[i] = new int[count];
+                count = 0;
+                for(int j=0; j<degrees.length; j++)
+                    if(adjMatrix[i][j])
+                        lists[i][count++] = j;
+            }
+            neighbours = lists;
+        }
+        return neighbours;
+    }
+
     /* assings random colours to the vertices of this graph. Assigns each colour to <numVertsPerColour>
      * vertices. Depending on the number of vertices in the graph, this might not be possible, in which case one
      * colour-group will have fewer than <numVertsPerColour> vertices
@@ -428,6 +467,39 @@ public class Graph {
         return g;
     }
 
+    /* Creates a graph without adjacency matrix from a list of edges. Every edge is given as one long holding the
+     * smaller vertex (0-based) in its upper and the larger vertex in its lower 32 bits, and must occur only once
+     * (see EdgeListBuilder). Vertex i gets colour colours[i], colours start at 1.
+     */
+    static Graph fromEdgeList(int numVertices, long[] edges, int[] colours) throws Exception{
+        Graph g = new Graph();
+        g.degrees = new int[numVertices];
+        g.colours = colours.clone();
+        g.numColours = 1;
+        for(int i=0; i<numVertices; i++){
+            if(colours[i] < 1)
+                throw new Exception("Vertex "+(i+1)+" has illegal colour "+colours[i]);
+            g.numColours = Math.max(g.numColours, colours[i]);
+        }
+        g.numEdges = edges.length;
+        for(long edge : edges){
+            g.degrees[(int)(edge >>> 32)]++;
+            g.degrees[(int)edge]++;
+        }
+        g.neighbours = new int[numVertices][];
+        for(int i=0; i<numVertices; i++)
+            g.neighbours[i] = new int[g.degrees[i]];
+        int[] count = new int[numVertices];
+        for(long edge : edges){
+            int v1 = (int)(edge >>> 32), v2 = (int)edge;
+            g.neighbours[v1][count[v1]++] = v2;
+            g.neighbours[v2][count[v2]++] = v1;
+        }
+        for(int i=0; i<numVertices; i++)
+            Arrays.sort(g.neighbours[i]);
+        return g;
+    }
+
     /* Creates a graph from an adjacency matrix. Since adjacency matrices don't contain colours,
      * all vertices will have the same colour.
      */
@@ -473,9 +545,9 @@ public class Graph {
         b.append(" ");
         b.append(numColours);
         b.append("\n");
-        for(int i=0; i<adjMatrix.length; i++){
-            for(int j=i; j<adjMatrix.length; j++){
-                if(adjMatrix[i][j]){
+        for(int i=0; i<degrees.length; i++){
+            for(int j : getNeighbours(i)){
+                if(j >= i){
                     b.append("e ");
                     b.append(i+1);
                     b.append(" ");
@@ -507,9 +579,9 @@ public class Graph {
         b.append(" ");
         b.append(numEdges);
         b.append("\n");
-        for(int i=0; i<adjMatrix.length; i++){
-            for(int j=i; j<adjMatrix.length; j++){
-                if(adjMatrix[i][j]){
+        for(int i=0; i<degrees.length; i++){
+            for(int j : getNeighbours(i)){
+                if(j >= i){
                     b.append("e ");
                     b.append(i+1);
                     b.append(" ");
@@ -522,11 +594,69 @@ public class Graph {
     }
 
 
+    /* writes the same representation as toString() to <out>, piece by piece
+     */
+    public void writeTo(OutputStream out) throws Exception{
+        writeTo(out, 1);
+    }
+
+    /* as writeTo(out), but the text is formatted by <threads> threads (see GraphWriter)
+     */
+    public void writeTo(OutputStream out, int threads) throws Exception{
+        GraphWriter.write(this, false, out, threads);
+    }
+
+    /* writes the same representation as toStringColoured() to <out>, piece by piece
+     */
+    public void writeColouredTo(OutputStream out) throws Exception{
+        writeColouredTo(out, 1);
+    }
+
+    /* as writeColouredTo(out), but the text is formatted by <threads> threads (see GraphWriter)
+     */
+    public void writeColouredTo(OutputStream out, int threads) throws Exception{
+        GraphWriter.write(this, true, out, threads);
+    }
+
+    /* appends the header line of the DIMACS (or, if <coloured> is set, COLOURED) format
+     */
+    void appendHeader(ChunkWriter w, boolean coloured) throws Exception{
+        w.append(coloured ? "p cols " : "p edge ").append(degrees.length).append(' ').append(numEdges);
+        if(coloured)
+            w.append(' ').append(numColours);
+        w.append('\n');
+    }
+
+    /* appends the edge lines of the vertices from..to-1, every edge is written by its smaller vertex
+     */
+    void appendEdges(ChunkWriter w, int from, int to) throws Exception{
+        for(int i=from; i<to; i++){
+            if(adjMatrix == null){
+                for(int j : neighbours[i])
+                    if(j >= i)
+                        w.append("e ").append(i+1).append(' ').append(j+1).append('\n');
+            }else{
+                for(int j=i; j<adjMatrix.length; j++)
+                    if(adjMatrix[i][j])
+                        w.append("e ").append(i+1).append(' ').append(j+1).append('\n');
+            }
+        }
+    }
+
+    /* appends the colour lines of the vertices from..to-1
+     */
+    void appendColours(ChunkWriter w, int from, int to) throws Exception{
+        for(int i=from; i<to; i++)
+            w.append("v ").append(i+1).append(' ').append(colours[i]).append('\n');
+    }
+
     /* checks whether or not this graph is undirected, i.e. if it contains an
      * edge (i,j) for every edge (j,i)
      *
      */
     public boolean isGraphUndirected(){
+        if(adjMatrix == null)       //every edge of the edge list is added in both directions
+            return true;
         for(int i=0; i<degrees.length; i++){
             for(int j=0; j<degrees.length; j++){
                 if(adjMatrix[i][j] != adjMatrix[j][i])
@@ -543,7 +673,7 @@ public class Graph {
         for(int i=0; i<degrees.length; i++){
             int tmp = 0;
             for(int j=0; j<degrees.length; j++)
-                if(adjMatrix[i][j])
+                if(containsEdge(i, j))
                     tmp++;
             if(tmp != degrees[i])
                 return false;
@@ -599,12 +729,34 @@ public class Graph {
             res.degrees[map[i]] = g.degrees[i];
             res.colours[map[i]] = g.colours[i];
             for(int j=0; j<g.getNumVertices(); j++){
-                res.adjMatrix[map[i]][map[j]] = g.adjMatrix[i][j];
+                res.adjMatrix[map[i]][map[j]] = g.containsEdge(i, j);
             }
         }
         return res;
     }
 
+    /* returns the complement of this graph: two distinct vertices are adjacent in the complement if and only if
+     * they are not adjacent in this graph. Colours are kept, self-loops are dropped.
+     */
+    public Graph complement(){
+        int n = degrees.length;
+        Graph g = new Graph(n);
+        g.numColours = numColours;
+        long degreeSum = 0;
+        for(int i=0; i<n; i++){
+            g.colours[i] = colours[i];
+            for(int j=0; j<n; j++){
+                if(i != j && !containsEdge(i, j)){
+                    g.adjMatrix[i][j] = true;
+                    g.degrees[i]++;
+                }
+            }
+            degreeSum += g.degrees[i];
+        }
+        g.numEdges = (int)(degreeSum/2);
+        return g;
+    }
+
     /* returns whether or not the graph is regular
      *
      */
@@ -627,7 +779,7 @@ public class Graph {
         for(int i=0; i<n; i++){
             res.degrees[i] = g.degrees[i];
             for(int j=0; j<n; j++)
-                res.adjMatrix[i][j] = g.adjMatrix[i][j];
+                res.adjMatrix[i][j] = g.containsEdge(i, j);
         }
         //create new edges from the new vertex to a random n/10 vertexes
         for(int i=0; i<n/10; i++){
@@ -649,11 +801,11 @@ public class Graph {
         Graph g = new Graph(this.degrees.length);
         g.numEdges = this.numEdges;
         g.numColours = this.numColours;
-        for(int i=0; i<this.adjMatrix.length; i++){
+        for(int i=0; i<this.degrees.length; i++){
             g.degrees[i] = this.degrees[i];
             g.colours[i] = this.colours[i];
-            for(int j=0; j<this.adjMatrix.length; j++)
-                g.adjMatrix[i][j] = this.adjMatrix[i][j];
+            for(int j=0; j<this.degrees.length; j++)
+                g.adjMatrix[i][j] = this.containsEdge(i, j);
         }
         return g;
     }
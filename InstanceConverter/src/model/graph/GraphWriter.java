@@ -0,0 +1,93 @@
+
+package model.graph;
+
+import io.ChunkWriter;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/** Writes a graph in DIMACS or COLOURED format (see Graph.toString and Graph.toStringColoured).
+ *  The edge lines are split into tasks of consecutive vertices with about TASK_EDGES edges, and the colour
+ *  lines into tasks of TASK_VERTICES vertices. With more than one thread, the tasks are formatted into byte
+ *  chunks in parallel, at most 2*threads tasks ahead of the one that is written next, and the chunks are
+ *  written in order, so the output is the same for any number of threads.
+ *
+ * @author Frank Mugrauer
+ */
+class GraphWriter {
+    private static final int TASK_EDGES = 1 << 16;
+    private static final int TASK_VERTICES = 1 << 16;
+    private static final int EDGES = 0, COLOURS = 1;
+
+    static void write(final Graph g, boolean coloured, OutputStream out, int threads) throws Exception{
+        int n = g.getNumVertices();
+        ChunkWriter w = new ChunkWriter(out);
+        g.appendHeader(w, coloured);
+        if(threads <= 1 || g.getNumEdges() <= TASK_EDGES){
+            g.appendEdges(w, 0, n);
+            if(coloured)
+                g.appendColours(w, 0, n);
+            w.flush();
+            return;
+        }
+        w.flush();
+        //every task is {first vertex, last vertex+1, EDGES or COLOURS}, edge tasks come first
+        List<int[]> tasks = new ArrayList<int[]>();
+        int from = 0;
+        long edges = 0;
+        for(int i=0; i<n; i++){
+            edges += g.getDegree(i)+1;
+            if(edges >= 2L*TASK_EDGES || i == n-1){     //every edge is counted by both of its vertices
+                tasks.add(new int[]{from, i+1, EDGES});
+                from = i+1;
+                edges = 0;
+            }
+        }
+        if(coloured)
+            for(from=0; from<n; from+=TASK_VERTICES)
+                tasks.add(new int[]{from, Math.min(from+TASK_VERTICES, n), COLOURS});
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try{
+            int window = 2*threads;
+            List<Future<ChunkWriter>> futures = new ArrayList<Future<ChunkWriter>>();
+            int submitted = 0;
+            for(int t=0; t<tasks.size(); t++){
+                while(submitted < tasks.size() && submitted < t+window){
+                    final int[] task = tasks.get(submitted++);
+                    futures.add(executor.submit(new Callable<ChunkWriter>(){
+                        public ChunkWriter call() throws Exception{
+                            ChunkWriter chunk = new ChunkWriter();
+                            if(task[2] == EDGES)
+                                g.appendEdges(chunk, task[0], task[1]);
+                            else
+                                g.appendColours(chunk, task[0], task[1]);
+                            return chunk;
+                        }
+                    }));
+                }
+                ChunkWriter chunk = getResult(futures.get(t));
+                futures.set(t, null);
+                out.write(chunk.getBuffer(), 0, chunk.getLength());
+            }
+            out.flush();
+        }finally{
+            executor.shutdownNow();
+        }
+    }
+
+    private static ChunkWriter getResult(Future<ChunkWriter> future) throws Exception{
+        try{
+            return future.get();
+        }catch(ExecutionException e){
+            if(e.getCause() instanceof Exception)
+                throw (Exception)e.getCause();
+            throw e;
+        }
+    }
+}
@@ -8,7 +8,6 @@ import java.util.List;
  * @author Frank Mugrauer
  */
 public class Utils {
-    private static boolean[] mask;
 
     
     public static boolean[][] createNodeGraph(int degree){
@@ -16,7 +15,7 @@ public class Utils {
         boolean[][] adjmatrix = new boolean[size][size];
         //Array is build as follows: [a_1 ... a_deg, b_1 ... b_deg, m_1 ... m_2^(deg-1)]
         int mPos = 2*degree;
-        mask = new boolean[degree];
+        boolean[] mask = new boolean[degree];
         while(mPos < size){
             for(int i=0; i<mask.length; i++){
                 if(mask[i]){ //connect mPos with a_i
@@ -32,7 +31,7 @@ public class Utils {
             int count;
             do{
                 count = 0;
-                increaseMask();
+                increaseMask(mask);
                 for(int i=0; i<mask.length; i++)
                     if(mask[i])
                         count++;
@@ -41,7 +40,7 @@ public class Utils {
         return adjmatrix;
     }
 
-    private static void increaseMask(){
+    private static void increaseMask(boolean[] mask){
         int i = 0;
         while(mask[i]){
             mask[i]=false;
@@ -4,6 +4,8 @@
  */
 package model.labs;
 
+import io.ChunkWriter;
+import java.io.OutputStream;
 import model.ProblemInstance;
 
 /** Problem specification for the LABS (Low Autocorrelation Binary Sequences) Problem
@@ -41,6 +43,17 @@ public class LABS_Instance implements ProblemInstance{
         return s.substring(0, s.length()-1); //cut off superfluous ","
     }
     @Override
+    public void writeTo(OutputStream out) throws Exception{
+        ChunkWriter w = new ChunkWriter(out);
+        w.append(numberOfBits).append('\n');
+        for(int i=0; i<targets.length; i++){
+            if(i > 0)
+                w.append(',');
+            w.append(targets[i]);
+        }
+        w.flush();
+    }
+    @Override
     public String instanceType() {
         return "LABS";
     }
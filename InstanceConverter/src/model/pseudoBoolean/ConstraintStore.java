@@ -0,0 +1,196 @@
+
+package model.pseudoBoolean;
+
+import java.util.Arrays;
+import model.basic.Literal;
+
+/** Stores the constraints of PBS instances in parallel arrays of primitives instead of Constraint, Summand and
+ *  Literal objects:
+ *      summands:       weight, and the range of its factors (factorStart[s] .. factorStart[s+1]-1)
+ *      factors:        the literals, packed as (variable id << 1) | 1 if negated
+ *      constraints:    the range of its summands (firstSummand .. endSummand-1), target and operator
+ *  Summands and constraints are numbered in the order they are added. Every constraint refers to a range of
+ *  summands, so several constraints (e.g. of instances that only differ in their targets) can share the same
+ *  summands, which are then stored only once.
+ *  Instead of a range of summands, a constraint can have a SummandSource, which generates its summands
+ *  whenever they are needed (getSource() is null for all other constraints).
+ *  The getters give access to single entries without creating objects; getConstraint() creates the objects
+ *  for code that needs them.
+ *
+ * @author Frank Mugrauer
+ */
+public class ConstraintStore {
+    private static final Operator[] OPERATORS = Operator.values();
+    private int[] weights, factorStart, literals;
+    private int numSummands, numFactors;
+    private int[] firstSummand, endSummand, targets;
+    private byte[] ops;
+    private SummandSource[] sources;
+    private int numConstraints;
+
+    public ConstraintStore(){
+        weights = new int[16];
+        factorStart = new int[17];
+        literals = new int[64];
+        firstSummand = new int[4];
+        endSummand = new int[4];
+        targets = new int[4];
+        ops = new byte[4];
+        sources = new SummandSource[4];
+    }
+
+    /* starts a new summand, whose factors are added by addFactor(); returns the index of the summand
+     */
+    public int addSummand(int weight){
+        if(numSummands == weights.length){
+            weights = Arrays.copyOf(weights, 2*numSummands);
+            factorStart = Arrays.copyOf(factorStart, 2*numSummands+1);
+        }
+        weights[numSummands] = weight;
+        numSummands++;
+        factorStart[numSummands] = numFactors;
+        return numSummands-1;
+    }
+
+    /* adds a factor to the summand that has been added last
+     */
+    public void addFactor(int variable, boolean negated){
+        if(numFactors == literals.length)
+            literals = Arrays.copyOf(literals, 2*numFactors);
+        literals[numFactors++] = (variable << 1) | (negated ? 1 : 0);
+        factorStart[numSummands] = numFactors;
+    }
+
+    /* adds the summands of all parts of <source>, and returns the index of the first
+     */
+    public int addSummands(SummandSource source){
+        int first = numSummands;
+        for(int part=0; part<source.getNumParts(); part++)
+            source.addPart(part, this);
+        return first;
+    }
+
+    /* adds the summands, and returns the index of the first
+     */
+    public int addSummands(Summand[] summands){
+        int first = numSummands;
+        for(Summand s : summands){
+            addSummand(s.getWeight());
+            for(Literal l : s.getFactors())
+                addFactor(l.getID(), l.isNegated());
+        }
+        return first;
+    }
+
+    /* adds a constraint over the summands first .. end-1 (which must have been added before); returns the
+     * index of the constraint
+     */
+    public int addConstraint(int first, int end, int target, Operator op){
+        if(numConstraints == targets.length){
+            firstSummand = Arrays.copyOf(firstSummand, 2*numConstraints);
+            endSummand = Arrays.copyOf(endSummand, 2*numConstraints);
+            targets = Arrays.copyOf(targets, 2*numConstraints);
+            ops = Arrays.copyOf(ops, 2*numConstraints);
+            sources = Arrays.copyOf(sources, 2*numConstraints);
+        }
+        firstSummand[numConstraints] = first;
+        endSummand[numConstraints] = end;
+        targets[numConstraints] = target;
+        ops[numConstraints] = (byte)op.ordinal();
+        return numConstraints++;
+    }
+
+    /* adds a constraint whose summands are generated by <source>; returns the index of the constraint
+     */
+    public int addConstraint(SummandSource source, int target, Operator op){
+        int c = addConstraint(0, 0, target, op);
+        sources[c] = source;
+        return c;
+    }
+
+    /* adds the constraint and its summands; returns the index of the constraint
+     */
+    public int addConstraint(Constraint c){
+        int first = addSummands(c.getSummands());
+        return addConstraint(first, first+c.countSummands(), c.getTarget(), c.getOp());
+    }
+
+    /* removes all summands and constraints, keeping the arrays for reuse
+     */
+    public void clear(){
+        Arrays.fill(sources, 0, numConstraints, null);
+        numSummands = 0;
+        numFactors = 0;
+        numConstraints = 0;
+    }
+
+    public int getNumSummands(){
+        return numSummands;
+    }
+
+    public int getNumConstraints(){
+        return numConstraints;
+    }
+
+    public int getFirstSummand(int constraint){
+        return firstSummand[constraint];
+    }
+
+    public int getEndSummand(int constraint){
+        return endSummand[constraint];
+    }
+
+    /* returns the SummandSource of the constraint, or null if its summands are stored
+     */
+    public SummandSource getSource(int constraint){
+        return sources[constraint];
+    }
+
+    public int getTarget(int constraint){
+        return targets[constraint];
+    }
+
+    public Operator getOp(int constraint){
+        return OPERATORS[ops[constraint]];
+    }
+
+    public int getWeight(int summand){
+        return weights[summand];
+    }
+
+    public int getFirstFactor(int summand){
+        return factorStart[summand];
+    }
+
+    public int getEndFactor(int summand){
+        return factorStart[summand+1];
+    }
+
+    public int getVariable(int factor){
+        return literals[factor] >>> 1;
+    }
+
+    public boolean isNegated(int factor){
+        return (literals[factor] & 1) != 0;
+    }
+
+    /* creates the Constraint object (with its Summands and Literals) of a constraint
+     */
+    public Constraint getConstraint(int constraint){
+        if(sources[constraint] != null){
+            ConstraintStore generated = new ConstraintStore();
+            generated.addSummands(sources[constraint]);
+            return generated.getConstraint(generated.addConstraint(0, generated.getNumSummands(),
+                    targets[constraint], getOp(constraint)));
+        }
+        Summand[] summands = new Summand[endSummand[constraint]-firstSummand[constraint]];
+        for(int i=0; i<summands.length; i++){
+            int s = firstSummand[constraint]+i;
+            Literal[] factors = new Literal[getEndFactor(s)-getFirstFactor(s)];
+            for(int f=0; f<factors.length; f++)
+                factors[f] = new Literal(getVariable(getFirstFactor(s)+f), isNegated(getFirstFactor(s)+f));
+            summands[i] = new Summand(weights[s], factors);
+        }
+        return new Constraint(targets[constraint], getOp(constraint), summands);
+    }
+}
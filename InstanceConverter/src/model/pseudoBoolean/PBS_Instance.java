@@ -1,37 +1,73 @@
 
 package model.pseudoBoolean;
 
+import io.ChunkWriter;
+import java.io.OutputStream;
 import model.ProblemInstance;
-import model.basic.Literal;
+import model.basic.Variable;
 
 /** Represents a problem specification for the PBS (Pseudo Boolean Satisfaction) problem
  *  PBS specifications consist of one or more Constraints
+ *  The constraints are kept in a ConstraintStore, which several instances (e.g. with different targets) can
+ *  share.
  *
  * @author Frank Mugrauer
  */
 public class PBS_Instance implements ProblemInstance{
     private String fileNameInfo;
-    private Constraint[] constraints;
+    private ConstraintStore store;
+    private int firstConstraint, endConstraint;
     private int variables, product, sizeproduct;
 
     public PBS_Instance(Constraint[] constraints, int variables, int product, int sizeproduct){
-        this.constraints = constraints;
-        this.variables = variables;
-        this.product = product;
-        this.sizeproduct = sizeproduct;
+        this(new ConstraintStore(), 0, constraints.length, variables, product, sizeproduct);
+        for(Constraint c : constraints)
+            store.addConstraint(c);
     }
     public PBS_Instance(Constraint c, int variables, int product, int sizeproduct){
-        this.constraints = new Constraint[1];
-        constraints[0] = c;
+        this(new Constraint[]{c}, variables, product, sizeproduct);
+    }
+
+    /* creates an instance of the constraints firstConstraint .. endConstraint-1 of <store>, which may be shared
+     * with other instances
+     */
+    public PBS_Instance(ConstraintStore store, int firstConstraint, int endConstraint, int variables, int product,
+            int sizeproduct){
+        this.store = store;
+        this.firstConstraint = firstConstraint;
+        this.endConstraint = endConstraint;
         this.variables = variables;
         this.product = product;
         this.sizeproduct = sizeproduct;
     }
 
+    /* creates the objects of the constraints; getStore() gives access to them without creating objects
+     */
     public Constraint[] getConstraints() {
+        Constraint[] constraints = new Constraint[getNumConstraints()];
+        for(int c=0; c<constraints.length; c++)
+            constraints[c] = store.getConstraint(firstConstraint+c);
         return constraints;
     }
 
+    public ConstraintStore getStore() {
+        return store;
+    }
+
+    /* the constraints of this instance are getFirstConstraint() .. getEndConstraint()-1 of getStore()
+     */
+    public int getFirstConstraint() {
+        return firstConstraint;
+    }
+
+    public int getEndConstraint() {
+        return endConstraint;
+    }
+
+    public int getNumConstraints() {
+        return endConstraint-firstConstraint;
+    }
+
     @Override
     public void appendFileNameInfo(String info) {
         fileNameInfo = fileNameInfo + info;
@@ -56,60 +92,61 @@ public class PBS_Instance implements ProblemInstance{
         b.append("* #variable= ");
         b.append(variables);
         b.append(" #constraint= ");
-        b.append(constraints.length);
+        b.append(getNumConstraints());
         b.append(" #product= ");
         b.append(product);
         b.append(" sizeproduct= ");
         b.append(sizeproduct);
         b.append(" \n");
-        for(Constraint c : constraints){
-            b.append(toStringConstraint(c));
-            b.append("\n");
+        for(int c=firstConstraint; c<endConstraint; c++){
+            if(store.getSource(c) == null)
+                appendSummands(b, store, store.getFirstSummand(c), store.getEndSummand(c));
+            else{
+                ConstraintStore generated = new ConstraintStore();
+                generated.addSummands(store.getSource(c));
+                appendSummands(b, generated, 0, generated.getNumSummands());
+            }
+            b.append((store.getOp(c) == Operator.EQUALS) ? " = " : " >= ");
+            b.append(store.getTarget(c));
+            b.append(";\n");
         }
         return b.toString();
-        /* OUTDATED as of 2013-3-24; new code is more efficient
-        String res = "* #variable= "+variables+" #constraint= "+constraints.length
-                    +" #product= "+product+" sizeproduct= "+sizeproduct+" \n";
-        for(Constraint c : constraints)
-            res = res + toStringConstraint(c) + "\n";
-        return res.substring(0, res.length()-1); //cut off superfluous "\n"
-        */
     }
 
-    private String toStringLiteral(Literal l){
-        if(l.isNegated())
-            return "~"+l.getName();
-        return l.getName();
+    private static void appendSummands(StringBuilder b, ConstraintStore store, int first, int end){
+        for(int s=first; s<end; s++){
+            if(store.getWeight(s) >= 0)
+                b.append('+');
+            b.append(store.getWeight(s));
+            for(int f=store.getFirstFactor(s); f<store.getEndFactor(s); f++){
+                b.append(' ');
+                if(store.isNegated(f))
+                    b.append('~');
+                b.append(new Variable(store.getVariable(f)).getName());
+            }
+            b.append(' ');
+        }
     }
-    private String toStringSummand(Summand s){
-        String res = "";
-        //if(s.getWeight() != 1)
-        res = res + ((s.getWeight()>=0) ? "+" : "") + s.getWeight()+" ";
-        Literal[] lits = s.getFactors();
-        for(Literal l : lits)
-            res = res + toStringLiteral(l) + " ";
-        return res.substring(0, res.length()-1); //cut off superfluous whitespace
+
+    /* writes the same representation as toString(); the name of every variable is converted to bytes only
+     * once
+     */
+    @Override
+    public void writeTo(OutputStream out) throws Exception{
+        writeTo(out, new SummandRenderer(false));
     }
-    private String toStringConstraint(Constraint c){
-        StringBuilder b = new StringBuilder();
-        Summand[] smds = c.getSummands();
-        for(Summand s : smds){
-            b.append(toStringSummand(s));
-            b.append(" ");
+
+    /* as writeTo(out), but the summands are formatted by <renderer>, which may keep them for other instances
+     * sharing the same summands of the ConstraintStore (or the same SummandSource)
+     */
+    public void writeTo(OutputStream out, SummandRenderer renderer) throws Exception{
+        ChunkWriter w = new ChunkWriter(out);
+        w.append("* #variable= ").append(variables).append(" #constraint= ").append(getNumConstraints())
+                .append(" #product= ").append(product).append(" sizeproduct= ").append(sizeproduct).append(" \n");
+        for(int c=firstConstraint; c<endConstraint; c++){
+            renderer.append(w, store, c);
+            w.append((store.getOp(c) == Operator.EQUALS) ? " = " : " >= ").append(store.getTarget(c)).append(";\n");
         }
-        b.append((c.getOp() == Operator.EQUALS) ? " = " : " >= ");
-        b.append(c.getTarget());
-        b.append(";");
-        return b.toString();
-        /* OUTDATED as of 2013-3-24; new code is more efficient
-        String res = "";
-        Summand[] smds = c.getSummands();
-        for(Summand s : smds)
-            res = res + toStringSummand(s) + " ";
-        //res = res.substring(0, res.length()); //cut off "+ "
-        res = res + ((c.getOp() == Operator.EQUALS) ? " = " : " >= ");
-        res = res + c.getTarget()+";";
-        return res;
-        */
+        w.flush();
     }
 }
@@ -0,0 +1,153 @@
+
+package model.pseudoBoolean;
+
+import io.ChunkWriter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import model.basic.Variable;
+
+/** Formats the summands of constraints for PBS_Instance.writeTo, converting the name of every variable to
+ *  bytes only once.
+ *  A renderer that keeps its output renders every range of summands of a ConstraintStore only once, and reuses
+ *  the bytes whenever the same range is written again, e.g. for the instances of a LABS conversion, which
+ *  share their summands and only differ in their targets. Such a renderer can be shared by several threads.
+ *  The summands of a SummandSource are kept as well, unless there are more than MAX_KEPT_SUMMANDS of them;
+ *  larger sources are generated again for every constraint, CHUNK_SUMMANDS at a time, so that neither
+ *  their summands nor their text are held in memory as a whole.
+ *
+ * @author Frank Mugrauer
+ */
+public class SummandRenderer {
+    public static final int MAX_KEPT_SUMMANDS = 1 << 20;
+    private static final int CHUNK_SUMMANDS = 1 << 12;
+    //the rendered ranges of summands per store, by ((long)first << 32) | end
+    private final IdentityHashMap<ConstraintStore, HashMap<Long, byte[]>> rendered;
+    private final IdentityHashMap<SummandSource, byte[]> renderedSources;
+    //names[id] = name of the variable with this id; replaced by a copy whenever a name is added, so that
+    //threads can read it without locking
+    private volatile byte[][] names;
+
+    /* creates a renderer that keeps the rendered summands
+     */
+    public SummandRenderer(){
+        this(true);
+    }
+
+    SummandRenderer(boolean keep){
+        rendered = keep ? new IdentityHashMap<ConstraintStore, HashMap<Long, byte[]>>() : null;
+        renderedSources = keep ? new IdentityHashMap<SummandSource, byte[]>() : null;
+        names = new byte[16][];
+    }
+
+    /* renders the summands of all constraints of <instance> in advance, so that writing the instance only reads
+     * them
+     */
+    public void render(PBS_Instance instance) throws Exception{
+        ConstraintStore store = instance.getStore();
+        for(int c=instance.getFirstConstraint(); c<instance.getEndConstraint(); c++){
+            SummandSource source = store.getSource(c);
+            if(source == null)
+                render(store, store.getFirstSummand(c), store.getEndSummand(c));
+            else if(source.countSummands() <= MAX_KEPT_SUMMANDS)
+                render(source);
+        }
+    }
+
+    /* appends the summands of the constraint, each as "<weight> <literals> " (e.g. "+2 x1 ~x2 ")
+     */
+    void append(ChunkWriter w, ConstraintStore store, int constraint) throws Exception{
+        SummandSource source = store.getSource(constraint);
+        if(rendered == null || (source != null && source.countSummands() > MAX_KEPT_SUMMANDS)){
+            if(source == null)
+                appendSummands(w, store, store.getFirstSummand(constraint), store.getEndSummand(constraint));
+            else
+                appendSummands(w, source);
+            return;
+        }
+        if(source == null)
+            w.append(render(store, store.getFirstSummand(constraint), store.getEndSummand(constraint)));
+        else
+            w.append(render(source));
+    }
+
+    /* renders all summands of <source> (unless they have been rendered before), and returns the bytes
+     */
+    private synchronized byte[] render(SummandSource source) throws Exception{
+        byte[] bytes = renderedSources.get(source);
+        if(bytes == null){
+            ChunkWriter w = new ChunkWriter();
+            appendSummands(w, source);
+            bytes = Arrays.copyOf(w.getBuffer(), w.getLength());
+            renderedSources.put(source, bytes);
+        }
+        return bytes;
+    }
+
+    /* renders the summands first .. end-1 of <store> (unless they have been rendered before), and returns the
+     * bytes
+     */
+    private synchronized byte[] render(ConstraintStore store, int first, int end) throws Exception{
+        HashMap<Long, byte[]> ranges = rendered.get(store);
+        if(ranges == null){
+            ranges = new HashMap<Long, byte[]>();
+            rendered.put(store, ranges);
+        }
+        Long key = ((long)first << 32) | end;
+        byte[] bytes = ranges.get(key);
+        if(bytes == null){
+            ChunkWriter w = new ChunkWriter();
+            appendSummands(w, store, first, end);
+            bytes = Arrays.copyOf(w.getBuffer(), w.getLength());
+            ranges.put(key, bytes);
+        }
+        return bytes;
+    }
+
+    /* generates the summands of <source> into a small ConstraintStore, and appends them whenever it holds
+     * CHUNK_SUMMANDS of them
+     */
+    private void appendSummands(ChunkWriter w, SummandSource source) throws Exception{
+        ConstraintStore chunk = new ConstraintStore();
+        for(int part=0; part<source.getNumParts(); part++){
+            source.addPart(part, chunk);
+            if(chunk.getNumSummands() >= CHUNK_SUMMANDS){
+                appendSummands(w, chunk, 0, chunk.getNumSummands());
+                chunk.clear();
+            }
+        }
+        appendSummands(w, chunk, 0, chunk.getNumSummands());
+    }
+
+    private void appendSummands(ChunkWriter w, ConstraintStore store, int first, int end) throws Exception{
+        for(int s=first; s<end; s++){
+            if(store.getWeight(s) >= 0)
+                w.append('+');
+            w.append(store.getWeight(s));
+            for(int f=store.getFirstFactor(s); f<store.getEndFactor(s); f++){
+                w.append(' ');
+                if(store.isNegated(f))
+                    w.append('~');
+                w.append(name(store.getVariable(f)));
+            }
+            w.append(' ');
+        }
+    }
+
+    private byte[] name(int id) throws Exception{
+        byte[][] known = names;
+        if(id < known.length && known[id] != null)
+            return known[id];
+        return addName(id);
+    }
+
+    private synchronized byte[] addName(int id) throws Exception{
+        byte[][] known = names;
+        if(id < known.length && known[id] != null)
+            return known[id];
+        known = Arrays.copyOf(known, (id < known.length) ? known.length : Math.max(2*known.length, id+1));
+        known[id] = new Variable(id).getName().getBytes("US-ASCII");
+        names = known;
+        return known[id];
+    }
+}
@@ -0,0 +1,24 @@
+
+package model.pseudoBoolean;
+
+/** Generates the summands of a constraint on demand, instead of keeping them in a ConstraintStore (see
+ *  ConstraintStore.addConstraint(SummandSource, ...)), so that constraints with a lot of summands that can be
+ *  derived from a more compact representation don't need the memory for all of them.
+ *  The summands are generated in parts (e.g. all summands of one product of a LABS conversion); the parts can
+ *  be generated in any order, any number of times, and by several threads at the same time.
+ *
+ * @author Frank Mugrauer
+ */
+public interface SummandSource {
+
+    public int getNumParts();
+
+    /* returns the number of summands of all parts
+     */
+    public int countSummands();
+
+    /* adds the summands of part <part> (0..getNumParts()-1) to <store> (see ConstraintStore.addSummand and
+     * addFactor)
+     */
+    public void addPart(int part, ConstraintStore store);
+}
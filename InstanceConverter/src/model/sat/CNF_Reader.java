@@ -0,0 +1,92 @@
+
+package model.sat;
+
+import io.InputReader;
+import java.io.BufferedReader;
+import java.util.Arrays;
+
+/** Reads the clauses of a sat instance in cnf one by one, without keeping the instance in memory.
+ *  The file format is the one read by SAT_Instance.createSAT_InstanceFromFile: comment lines start with "c",
+ *  the first other line reads "p cnf <numVars> <numClauses>", and every following non-empty line is one
+ *  clause, terminated by 0.
+ *
+ * @author Frank Mugrauer
+ */
+public class CNF_Reader {
+    private final BufferedReader reader;
+    private final int numVars;
+    private final int declaredClauses;
+    private int numClauses;
+    private int[] literals;
+
+    public CNF_Reader(String path) throws Exception{
+        reader = InputReader.openFile(path);
+        String line = reader.readLine();
+        while(line != null && line.startsWith("c"))
+            line = reader.readLine();
+        if(line == null){
+            reader.close();
+            throw new Exception("Input file appears to be empty!");
+        }
+        String[] split = line.split(" ");
+        if(split.length != 4 || !split[0].equals("p") || !split[1].equals("cnf")){
+            reader.close();
+            throw new Exception("First non comment input line should read \"p cnf <numVars> <numClauses>\""
+                    +"but instead reads: "+line);
+        }
+        numVars = Integer.parseInt(split[2]);
+        declaredClauses = Integer.parseInt(split[3]);
+        numClauses = 0;
+        literals = new int[16];
+    }
+
+    public int getNumVars(){
+        return numVars;
+    }
+
+    /* returns the number of clauses stated in the "p cnf" line
+     */
+    public int getDeclaredClauses(){
+        return declaredClauses;
+    }
+
+    /* returns the number of clauses read so far
+     */
+    public int getNumClauses(){
+        return numClauses;
+    }
+
+    /* reads the next clause, and returns its number of literals (or -1 if there are no more clauses)
+     * The literals are stored in getLiterals()[0..length-1] as in the file, i.e. -v for the negated literal
+     * of variable v.
+     */
+    public int nextClause() throws Exception{
+        String line = reader.readLine();
+        while(line != null && (line.startsWith("c") || line.isEmpty()))
+            line = reader.readLine();
+        if(line == null)
+            return -1;
+        numClauses++;
+        String[] split = line.split(" ");
+        if(split.length-1 > literals.length)
+            literals = Arrays.copyOf(literals, Math.max(2*literals.length, split.length-1));
+        for(int i=0; i<split.length-1; i++){ //last entry in split is always 0
+            int var = Integer.parseInt(split[i]);
+            if(var == 0 || Math.abs(var) > numVars)
+                throw new Exception("Literal "+var+" in clause "+numClauses+" is not a literal of a variable 1.."
+                        +numVars);
+            literals[i] = var;
+        }
+        return Math.max(split.length-1, 0);
+    }
+
+    /* returns the literals of the last clause; the array is reused for the next clause
+     */
+    public int[] getLiterals(){
+        return literals;
+    }
+
+    public void close() throws Exception{
+        reader.close();
+    }
+}
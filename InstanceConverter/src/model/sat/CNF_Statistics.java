@@ -0,0 +1,126 @@
+
+package model.sat;
+
+import java.util.Arrays;
+
+/** Invariants of a sat instance in cnf that are collected in a single pass over the file, without creating
+ *  a SAT_Instance. Two instances can only be isomorphic (i.e. equal up to renaming variables, negating
+ *  variables and reordering clauses and literals) if all of their invariants are equal:
+ *  - the number of variables
+ *  - the number of clauses of every length (literals occurring more than once in a clause are counted once)
+ *  - for every variable the number of clauses its positive and its negated literal occur in, as a pair
+ *    (smaller count, larger count) so that negating the variable doesn't change it; compared as sorted lists
+ *  - the same pairs counting binary clauses only, i.e. the degree of both literals of every variable in the
+ *    implication graph of the binary clauses
+ *  The file is read with CNF_Reader.
+ *
+ * @author Frank Mugrauer
+ */
+public class CNF_Statistics {
+    private final int numVars;
+    private int numClauses;
+    private long[] clauseLengths;       //clauseLengths[k] = number of clauses with k literals
+    private final int[] occurrences;    //per literal: positive literal of variable v at 2*(v-1), negated at 2*(v-1)+1
+    private final int[] binaryOccurrences;
+    private long[] occurrencePairs;     //sorted, (smaller << 32) | larger for every variable
+    private long[] binaryPairs;
+
+    private CNF_Statistics(int numVars){
+        this.numVars = numVars;
+        clauseLengths = new long[8];
+        occurrences = new int[2*numVars];
+        binaryOccurrences = new int[2*numVars];
+    }
+
+    /* reads the cnf file at <path> and collects its invariants
+     */
+    public static CNF_Statistics fromFile(String path) throws Exception{
+        CNF_Reader reader = new CNF_Reader(path);
+        try{
+            CNF_Statistics stats = new CNF_Statistics(reader.getNumVars());
+            int[] literals = new int[16];
+            int[] lastClause = new int[2*stats.numVars];  //number of the last clause a literal occurred in
+            int length;
+            while((length = reader.nextClause()) != -1){
+                int clause = reader.getNumClauses();
+                if(length > literals.length)
+                    literals = new int[length];
+                int distinct = 0;
+                for(int i=0; i<length; i++){
+                    int var = reader.getLiterals()[i];
+                    int literal = (var > 0) ? 2*(var-1) : 2*(-var-1)+1;
+                    if(lastClause[literal] == clause)
+                        continue;
+                    lastClause[literal] = clause;
+                    literals[distinct++] = literal;
+                }
+                stats.addClause(literals, distinct);
+            }
+            stats.finish();
+            return stats;
+        }finally{
+            reader.close();
+        }
+    }
+
+    private void addClause(int[] literals, int length){
+        numClauses++;
+        if(length >= clauseLengths.length)
+            clauseLengths = Arrays.copyOf(clauseLengths, Math.max(2*clauseLengths.length, length+1));
+        clauseLengths[length]++;
+        for(int i=0; i<length; i++){
+            occurrences[literals[i]]++;
+            if(length == 2)
+                binaryOccurrences[literals[i]]++;
+        }
+    }
+
+    private void finish(){
+        occurrencePairs = sortedPairs(occurrences);
+        binaryPairs = sortedPairs(binaryOccurrences);
+    }
+
+    private long[] sortedPairs(int[] counts){
+        long[] pairs = new long[numVars];
+        for(int v=0; v<numVars; v++){
+            int pos = counts[2*v], neg = counts[2*v+1];
+            pairs[v] = ((long)Math.min(pos, neg) << 32) | Math.max(pos, neg);
+        }
+        Arrays.sort(pairs);
+        return pairs;
+    }
+
+    public int getNumVars(){
+        return numVars;
+    }
+
+    public int getNumClauses(){
+        return numClauses;
+    }
+
+    /* returns the number of clauses with <length> distinct literals
+     */
+    public long getNumClauses(int length){
+        return (length < clauseLengths.length) ? clauseLengths[length] : 0;
+    }
+
+    /* returns a description of the first invariant that differs between this instance and <other>, or null
+     * if all invariants are equal
+     */
+    public String findDifference(CNF_Statistics other){
+        if(numVars != other.numVars)
+            return "Mismatched number of variables: "+numVars+" and "+other.numVars;
+        if(numClauses != other.numClauses)
+            return "Mismatched number of clauses: "+numClauses+" and "+other.numClauses;
+        int maxLength = Math.max(clauseLengths.length, other.clauseLengths.length);
+        for(int k=0; k<maxLength; k++)
+            if(getNumClauses(k) != other.getNumClauses(k))
+                return "Mismatched number of clauses with "+k+" literals: "+getNumClauses(k)+" and "
+                        +other.getNumClauses(k);
+        if(!Arrays.equals(occurrencePairs, other.occurrencePairs))
+            return "Mismatched numbers of occurrences of the literals of the variables";
+        if(!Arrays.equals(binaryPairs, other.binaryPairs))
+            return "Mismatched numbers of occurrences of the literals of the variables in binary clauses";
+        return null;
+    }
+}
@@ -1,6 +1,8 @@
 
 package model.sat;
 
+import io.ChunkWriter;
+import java.io.OutputStream;
 import java.util.LinkedList;
 import java.util.List;
 import model.ProblemInstance;
@@ -98,6 +100,23 @@ public class SAT_Instance implements ProblemInstance{
         return builder.toString();
     }
 
+    @Override
+    public void writeTo(OutputStream out) throws Exception{
+        ChunkWriter w = new ChunkWriter(out);
+        w.append("c Instance representing the graph isomorphism of two graphs:\nc ").append(String.valueOf(graphName1))
+                .append("\nc ").append(String.valueOf(graphName2)).append('\n');
+        w.append("p cnf ").append(numVars).append(' ').append(clauses.size()).append('\n');
+        for(LinkedList<Literal> clause : clauses){
+            for(Literal l : clause){
+                if(l.isNegated())
+                    w.append('-');
+                w.append(l.getID()).append(' ');
+            }
+            w.append("0\n");
+        }
+        w.flush();
+    }
+
     public static String clauseToString(LinkedList<Literal> clause){
         StringBuilder builder = new StringBuilder();
         for(Literal l : clause){